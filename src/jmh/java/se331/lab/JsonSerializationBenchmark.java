@@ -0,0 +1,87 @@
+package se331.lab;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import se331.lab.util.LabMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response rendering for an auction item with a large bid history: the item summary, the whole
+ * history in one body, and one page of it as /auction-items/{id}/bids returns it. Each goes
+ * entity -> LabMapper -> Jackson, with an ObjectMapper configured the way Spring Boot builds it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    static final int PAGE = 20;
+
+    @Param({"10", "1000", "10000"})
+    int bids;
+
+    ObjectMapper objectMapper;
+    AuctionItem item;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        item = AuctionItem.builder()
+                .id(1L)
+                .description("Signed vintage guitar")
+                .type("Music")
+                .startingPriceMinor(10_000L)
+                .endsAt(start.plusDays(7))
+                .build();
+        List<Bid> history = new ArrayList<>(bids);
+        for (int i = 0; i < bids; i++) {
+            history.add(Bid.builder()
+                    .id((long) i + 1)
+                    .amountMinor(10_000L + 125L * i)
+                    .bidder("bidder-" + (i % 97))
+                    .datetime(start.plusSeconds(30L * i))
+                    .item(item)
+                    .build());
+        }
+        item.setBids(history);
+        item.setCurrentPriceMinor(history.isEmpty() ? null : history.get(history.size() - 1).getAmountMinor());
+        item.setBidCount((long) history.size());
+        item.setSuccessfulBid(history.isEmpty() ? null : history.get(history.size() - 1));
+    }
+
+    @Benchmark
+    public byte[] itemSummary() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(LabMapper.INSTANCE.getAuctionItemDto(item));
+    }
+
+    @Benchmark
+    public byte[] fullBidHistory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(LabMapper.INSTANCE.getBidDto(item.getBids()));
+    }
+
+    @Benchmark
+    public byte[] bidPage() throws JsonProcessingException {
+        List<Bid> history = item.getBids();
+        return objectMapper.writeValueAsBytes(LabMapper.INSTANCE.getBidDto(history.subList(Math.max(0, history.size() - PAGE), history.size())));
+    }
+}
@@ -0,0 +1,152 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bid book updates under contention: a per-item lock, the CAS bid book and single-writer
+ * partitions, at 1, 4, 16 and 64 threads, with 1% of the items receiving 90% of the bids.
+ * Reports throughput (ops/us) and sampled latency, whose p50/p99/p99.9 show the tail that
+ * contention on the hot items adds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BidBookBenchmark {
+    static final int ITEMS = 10_000;
+    static final int HOT_ITEMS = ITEMS / 100;
+    static final double HOT_SHARE = 0.9;
+
+    @Param({"locked", "cas", "partitioned"})
+    String strategy;
+
+    BidBook bidBook;
+    BidAcceptance acceptance;
+    final LocalDateTime at = LocalDateTime.now();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bidBook = newBook();
+        acceptance = switch (strategy) {
+            case "locked" -> new LockedBidAcceptance(bidBook);
+            case "cas" -> new InMemoryBidAcceptance(bidBook);
+            case "partitioned" -> {
+                PartitionedBidAcceptance partitioned = new PartitionedBidAcceptance(bidBook, new SimpleMeterRegistry());
+                partitioned.capacity = 65_536;
+                partitioned.timeoutMs = 10_000;
+                partitioned.start();
+                yield partitioned;
+            }
+            default -> throw new IllegalArgumentException(strategy);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (acceptance instanceof PartitionedBidAcceptance partitioned) {
+            partitioned.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Bidder {
+        static final AtomicInteger NEXT = new AtomicInteger();
+        final String name = "bidder-" + NEXT.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BidResult threads1(Bidder bidder) {
+        return bid(bidder);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BidResult threads4(Bidder bidder) {
+        return bid(bidder);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public BidResult threads16(Bidder bidder) {
+        return bid(bidder);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public BidResult threads64(Bidder bidder) {
+        return bid(bidder);
+    }
+
+    BidResult bid(Bidder bidder) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long itemId = random.nextDouble() < HOT_SHARE
+                ? random.nextInt(HOT_ITEMS)
+                : HOT_ITEMS + random.nextInt(ITEMS - HOT_ITEMS);
+        // Bidders raise on what they last saw, so some of them lose to a concurrent bid
+        long seen = bidBook.state(itemId).snapshot().getHighAmountMinor();
+        return acceptance.accept(itemId, seen + 100L * (1 + random.nextInt(10)), bidder.name, at);
+    }
+
+    static BidBook newBook() {
+        return new BidBook(null, null) {
+            @Override
+            BidSnapshot loadSeed(Long itemId) {
+                return itemId >= 0 && itemId < ITEMS ? BidSnapshot.open(100L, null) : null;
+            }
+        };
+    }
+
+    // Baseline: request threads serialise on a lock per item
+    static class LockedBidAcceptance implements BidAcceptance {
+        final BidBook bidBook;
+        final ConcurrentHashMap<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+        LockedBidAcceptance(BidBook bidBook) {
+            this.bidBook = bidBook;
+        }
+
+        @Override
+        public BidResult accept(Long itemId, long amountMinor, String bidder, LocalDateTime at) {
+            ItemBidState state = bidBook.state(itemId);
+            if (state == null) {
+                return BidResult.notFound();
+            }
+            ReentrantLock lock = locks.computeIfAbsent(itemId, id -> new ReentrantLock());
+            lock.lock();
+            try {
+                return state.tryAccept(amountMinor, bidder, at);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean persistsBids() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package se331.lab.auction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se331.lab.util.Money;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-bid checks that run before any state changes: the throttle, converting the JSON amount
+ * to minor units, and validating against the current snapshot. Single-threaded, in nanoseconds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BidValidationBenchmark {
+    final LocalDateTime at = LocalDateTime.now();
+    final BidSnapshot snapshot = BidSnapshot.open(100L, at.plusDays(1)).withBid(12_345L, "someone", at);
+    final ItemBidState state = new ItemBidState(BidSnapshot.open(100L, null));
+    // Refills far faster than one thread can take, so every take succeeds
+    final TokenBuckets buckets = new TokenBuckets(65_536, 1e9, 16_000);
+    Double amount = 123.46;
+    long nextAmount = 100;
+    int bidderHash;
+
+    @Benchmark
+    public boolean validate() {
+        return !snapshot.isClosedAt(at) && snapshot.accepts(12_346L);
+    }
+
+    @Benchmark
+    public boolean convertAndValidate() {
+        return !snapshot.isClosedAt(at) && snapshot.accepts(Money.toMinor(amount));
+    }
+
+    @Benchmark
+    public BidResult acceptUncontended() {
+        return state.tryAccept(nextAmount++, "someone", at);
+    }
+
+    @Benchmark
+    public long throttle() {
+        return buckets.tryTake(bidderHash++);
+    }
+}
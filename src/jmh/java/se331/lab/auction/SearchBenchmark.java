@@ -0,0 +1,87 @@
+package se331.lab.auction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The /auction-items search paths over synthetic items: the trigram index behind
+ * ?description= / ?type= and the columnar catalog behind ?type= / ?maxSuccessful= / ?status=.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    static final String[] ADJECTIVES = {"vintage", "antique", "signed", "rare", "boxed", "restored", "handmade", "limited"};
+    static final String[] NOUNS = {"camera", "guitar", "watch", "poster", "vase", "lamp", "console", "bicycle", "painting", "radio"};
+    static final String[] TYPES = {"Electronics", "Music", "Art", "Collectibles", "Sports", "Home"};
+
+    @Param({"10000", "100000"})
+    int items;
+
+    AuctionItemSearchIndex searchIndex;
+    AuctionItemCatalog catalog;
+    final long[] total = new long[1];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        searchIndex = new AuctionItemSearchIndex(null);
+        catalog = new AuctionItemCatalog(null);
+        Random random = new Random(42);
+        for (long id = 1; id <= items; id++) {
+            String description = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " #" + id;
+            String type = TYPES[random.nextInt(TYPES.length)];
+            boolean sold = random.nextInt(4) == 0;
+            searchIndex.put(id, description, type);
+            catalog.put(id, type, 100L * (1 + random.nextInt(10_000)), sold || random.nextInt(3) == 0, sold);
+        }
+        searchIndex.ready = true;
+        catalog.ready = true;
+    }
+
+    @Benchmark
+    public long[] searchCommonWord() {
+        return searchIndex.search("vintage", null);
+    }
+
+    @Benchmark
+    public long[] searchRareTerm() {
+        return searchIndex.search("#4242", null);
+    }
+
+    @Benchmark
+    public long[] searchDescriptionOrType() {
+        return searchIndex.search("guitar", "music");
+    }
+
+    @Benchmark
+    public long[] filterType() {
+        return catalog.filter("elec", null, null, 0, 20, total);
+    }
+
+    @Benchmark
+    public long[] filterSoldBelowPrice() {
+        return catalog.filter(null, 50_000L, null, 0, 20, total);
+    }
+
+    @Benchmark
+    public long[] filterOpenTypeDeepPage() {
+        return catalog.filter("art", null, AuctionItemCatalog.Status.OPEN, 1_000, 20, total);
+    }
+}
@@ -0,0 +1,39 @@
+package se331.lab;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// A closed AuctionItem moved out of the hot tables by AuctionArchiver; keeps the original id
+@Data
+@Builder
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedAuctionItem {
+    @Id
+    Long id;
+
+    String description;
+    String type;
+    Long startingPriceMinor;
+    Long currentPriceMinor;
+    Long bidCount;
+    LocalDateTime lastBidAt;
+    LocalDateTime endsAt;
+    LocalDateTime closedAt;
+    LocalDateTime archivedAt;
+    Long successfulBidId;
+
+    // Every bid of the item, encoded by BidHistoryCodec
+    @Lob
+    @ToString.Exclude
+    byte[] bidHistory;
+}
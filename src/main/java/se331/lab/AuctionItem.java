@@ -1,5 +1,6 @@
 package se331.lab;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
@@ -7,15 +8,19 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,6 +28,11 @@ import java.util.List;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_auction_item_current_price_minor", columnList = "current_price_minor"),
+        @Index(name = "idx_auction_item_last_bid_at", columnList = "last_bid_at"),
+        @Index(name = "idx_auction_item_open_ends_at", columnList = "closed_at, ends_at")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class AuctionItem {
@@ -30,16 +40,34 @@ public class AuctionItem {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @EqualsAndHashCode.Exclude
     Long id;
+    // Bumped by JPA updates only: the bid and close statements leave it alone, so the ETag also
+    // takes bidCount and closedAt (see AuctionItemServiceImpl.getItemTag)
+    @Version
+    @JsonIgnore
+    Long version;
 
     String description;
     String type;
-    Double startingPrice;
+    // Prices are minor units (satang); the JSON edge converts them, see Money
+    Long startingPriceMinor;
 
+    // Denormalized from the bid table on every flushed bid; AuctionItemReconciler rebuilds them
+    Long currentPriceMinor;
     @Builder.Default
-    @OneToMany(mappedBy = "item", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    Long bidCount = 0L;
+    LocalDateTime lastBidAt;
+
+    LocalDateTime endsAt;
+    // Set together with successfulBid by AuctionClosingScheduler; an item without bids closes with no winner
+    LocalDateTime closedAt;
+
+    // Bid history is served page by page from /auction-items/{id}/bids, never inline
+    @Builder.Default
+    @OneToMany(mappedBy = "item", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
     List<Bid> bids = new ArrayList<>();
 
-    @OneToOne(fetch = FetchType.EAGER)
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "successful_bid_id")
     Bid successfulBid;
 
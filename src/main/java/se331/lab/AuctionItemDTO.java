@@ -0,0 +1,24 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuctionItemDTO {
+    Long id;
+    String description;
+    String type;
+    Double startingPrice;
+    Double currentPrice;
+    Long bidCount;
+    LocalDateTime endsAt;
+    LocalDateTime closedAt;
+    BidDTO successfulBid;
+}
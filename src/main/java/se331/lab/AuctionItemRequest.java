@@ -0,0 +1,21 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Body of POST /auction-items: only what a client may set; ids, prices and bid state stay server-side
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuctionItemRequest {
+    String description;
+    String type;
+    // Major units, as in every other price the API takes
+    Double startingPrice;
+    LocalDateTime endsAt;
+}
@@ -0,0 +1,25 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuctionStatsDTO {
+    Long totalBids;
+    Double minBid;
+    Double maxBid;
+    Double avgBid;
+    Map<String, Long> bidsByType;
+    // Keyed by the start of the hour, oldest first
+    Map<LocalDateTime, Long> bidsPerHour;
+    WinningBidStatsDTO winningBids;
+    LocalDateTime snapshotAt;
+}
@@ -1,12 +1,15 @@
 package se331.lab;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.EqualsAndHashCode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,15 +21,23 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 @Entity
+@Table(indexes = @Index(name = "idx_bid_bidder", columnList = "bidder"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Bid {
+    public static final int BIDDER_LENGTH = 255;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @EqualsAndHashCode.Exclude
     Long id;
 
-    Double amount;
+    // Bid journal sequence; lets recovery skip bids that already reached the table
+    @Column(unique = true)
+    Long sequence;
+    // Minor units (satang); converted to a decimal amount only in BidDTO
+    Long amountMinor;
+    @Column(length = BIDDER_LENGTH)
     String bidder;
     LocalDateTime datetime;
 
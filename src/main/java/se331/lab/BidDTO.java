@@ -0,0 +1,19 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidDTO {
+    Long id;
+    Double amount;
+    String bidder;
+    LocalDateTime datetime;
+}
@@ -0,0 +1,16 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidRequest {
+    Double amount;
+    // Set from the authenticated user by the controller; not taken from the client
+    String bidder;
+}
@@ -0,0 +1,22 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidResultDTO {
+    Long itemId;
+    Boolean accepted;
+    String status;
+    Double currentPrice;
+    Long bidCount;
+    String highBidder;
+    LocalDateTime lastBidAt;
+}
@@ -0,0 +1,21 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidUpdateDTO {
+    Long itemId;
+    Double currentPrice;
+    Long bidCount;
+    String highBidder;
+    LocalDateTime lastBidAt;
+    Boolean closed;
+}
@@ -0,0 +1,22 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidderBidDTO {
+    Long itemId;
+    Double highestBid;
+    Long bids;
+    LocalDateTime lastBidAt;
+    Double currentPrice;
+    // WINNING, OUTBID, WON or LOST
+    String status;
+}
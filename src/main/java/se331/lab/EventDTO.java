@@ -17,6 +17,8 @@ public class EventDTO {
     String location;
     String date;
     String time;
+    java.time.LocalDateTime startsAt;
+    java.time.LocalDateTime endsAt;
     Boolean petAllowed;
     EventOrganizerDTO organizer;
     java.util.List<String> images;
@@ -0,0 +1,19 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// GET /events with ?facets=: the page of events plus counts per value of each requested field
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventListDTO {
+    List<EventDTO> items;
+    Map<String, Map<String, Long>> facets;
+}
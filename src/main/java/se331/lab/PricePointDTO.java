@@ -0,0 +1,22 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricePointDTO {
+    LocalDateTime start;
+    LocalDateTime end;
+    Double open;
+    Double high;
+    Double low;
+    Double close;
+    Integer bids;
+}
@@ -0,0 +1,20 @@
+package se331.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WinningBidStatsDTO {
+    Long count;
+    Double min;
+    Double max;
+    Double avg;
+    Double p50;
+    Double p90;
+    Double p99;
+}
@@ -0,0 +1,127 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import se331.lab.ArchivedAuctionItem;
+import se331.lab.AuctionItem;
+import se331.lab.Bid;
+import se331.lab.repository.ArchivedAuctionItemRepository;
+import se331.lab.repository.AuctionItemRepository;
+import se331.lab.repository.BidRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves auctions that closed more than retention-days ago out of auction_item and bid into
+ * archived_auction_item, one row per item with its whole bid history as a BidHistoryCodec blob.
+ * Keeps the hot tables (and their indexes) small; archived items are still served by id.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuctionArchiver {
+    final AuctionItemRepository auctionItemRepository;
+    final BidRepository bidRepository;
+    final ArchivedAuctionItemRepository archivedAuctionItemRepository;
+    final JdbcTemplate jdbcTemplate;
+    final TransactionTemplate transactionTemplate;
+    final BidBook bidBook;
+    final AuctionItemCatalog auctionItemCatalog;
+    final AuctionItemSearchIndex auctionItemSearchIndex;
+    final PriceSeriesStore priceSeriesStore;
+    final BidderIndex bidderIndex;
+
+    @Value("${application.auctions.archive.retention-days:30}")
+    int retentionDays;
+    @Value("${application.auctions.archive.batch-size:100}")
+    int batchSize;
+
+    @Scheduled(cron = "${application.auctions.archive.cron:0 0 5 * * *}")
+    public void archiveClosed() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int archived = 0;
+        List<Long> ids;
+        do {
+            ids = auctionItemRepository.findIdsClosedBefore(cutoff, PageRequest.of(0, batchSize));
+            for (Long id : ids) {
+                // One transaction per item so a failure never leaves an item half moved
+                Boolean moved = transactionTemplate.execute(status -> archive(id));
+                if (Boolean.TRUE.equals(moved)) {
+                    forget(id);
+                    archived++;
+                }
+            }
+        } while (ids.size() == batchSize);
+        if (archived > 0) {
+            log.info("Archived {} auctions closed before {}", archived, cutoff);
+        }
+    }
+
+    boolean archive(Long id) {
+        AuctionItem item = auctionItemRepository.findById(id).orElse(null);
+        if (item == null || item.getClosedAt() == null) {
+            return false;
+        }
+        List<Bid> bids = bidRepository.findByItem_IdOrderByIdAsc(id);
+        archivedAuctionItemRepository.save(ArchivedAuctionItem.builder()
+                .id(item.getId())
+                .description(item.getDescription())
+                .type(item.getType())
+                .startingPriceMinor(item.getStartingPriceMinor())
+                .currentPriceMinor(item.getCurrentPriceMinor())
+                .bidCount(item.getBidCount())
+                .lastBidAt(item.getLastBidAt())
+                .endsAt(item.getEndsAt())
+                .closedAt(item.getClosedAt())
+                .archivedAt(LocalDateTime.now())
+                .successfulBidId(item.getSuccessfulBid() == null ? null : item.getSuccessfulBid().getId())
+                .bidHistory(BidHistoryCodec.encode(bids))
+                .build());
+        archivedAuctionItemRepository.flush();
+        // Plain SQL: the item's bid collection must not be cascaded through the persistence context
+        jdbcTemplate.update("update auction_item set successful_bid_id = null where id = ?", id);
+        jdbcTemplate.update("delete from bid where item_id = ?", id);
+        jdbcTemplate.update("delete from auction_item where id = ?", id);
+        return true;
+    }
+
+    private void forget(Long id) {
+        bidBook.evict(id);
+        auctionItemCatalog.remove(id);
+        auctionItemSearchIndex.remove(id);
+        priceSeriesStore.evict(id);
+        bidderIndex.forget(id);
+    }
+
+    // Rebuilds a detached AuctionItem (with its winning bid) for read-only use by the API
+    public static AuctionItem restore(ArchivedAuctionItem archived, List<Bid> history) {
+        Bid winner = null;
+        if (archived.getSuccessfulBidId() != null) {
+            for (Bid bid : history) {
+                if (archived.getSuccessfulBidId().equals(bid.getId())) {
+                    winner = bid;
+                    break;
+                }
+            }
+        }
+        return AuctionItem.builder()
+                .id(archived.getId())
+                .description(archived.getDescription())
+                .type(archived.getType())
+                .startingPriceMinor(archived.getStartingPriceMinor())
+                .currentPriceMinor(archived.getCurrentPriceMinor())
+                .bidCount(archived.getBidCount())
+                .lastBidAt(archived.getLastBidAt())
+                .endsAt(archived.getEndsAt())
+                .closedAt(archived.getClosedAt())
+                .successfulBid(winner)
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+package se331.lab.auction;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import se331.lab.cache.ResponseCache;
+import se331.lab.Bid;
+import se331.lab.repository.AuctionItemRepository;
+import se331.lab.repository.BidRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Closes auctions at endsAt. Only auctions ending within the horizon sit in the timer wheel;
+ * a periodic indexed range query on (closed_at, ends_at) tops it up, which is also how the
+ * schedule is rebuilt after a restart.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuctionClosingScheduler implements ApplicationListener<ApplicationReadyEvent> {
+    final AuctionItemRepository auctionItemRepository;
+    final BidRepository bidRepository;
+    final BidBook bidBook;
+    final BidWriteBehind bidWriteBehind;
+    final BidEventHub bidEventHub;
+    final TransactionTemplate transactionTemplate;
+    final AuctionItemCatalog auctionItemCatalog;
+    final BidAnalytics bidAnalytics;
+    final ResponseCache responseCache;
+
+    @Value("${application.auctions.closing.tick-ms:1000}")
+    long tickMillis;
+    @Value("${application.auctions.closing.wheel-size:512}")
+    int wheelSize;
+    @Value("${application.auctions.closing.horizon-minutes:360}")
+    long horizonMinutes;
+    @Value("${application.auctions.closing.settle-ms:5000}")
+    long settleMillis;
+    @Value("${application.auctions.closing.retry-ms:30000}")
+    long retryMillis;
+
+    final ExecutorService closer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "auction-closer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    volatile HashedTimerWheel wheel;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        wheel = new HashedTimerWheel(tickMillis, wheelSize, this::close, closer);
+        refill();
+    }
+
+    @Scheduled(fixedDelayString = "${application.auctions.closing.refill-ms:600000}",
+            initialDelayString = "${application.auctions.closing.refill-ms:600000}")
+    public void refill() {
+        if (wheel == null) {
+            return;
+        }
+        LocalDateTime horizon = LocalDateTime.now().plusMinutes(horizonMinutes);
+        List<AuctionItemRepository.AuctionEnd> ending = auctionItemRepository.findByClosedAtIsNullAndEndsAtLessThanEqual(horizon);
+        int added = 0;
+        for (AuctionItemRepository.AuctionEnd end : ending) {
+            if (!wheel.isScheduled(end.getId())) {
+                wheel.schedule(end.getId(), toMillis(end.getEndsAt()));
+                added++;
+            }
+        }
+        log.info("Closing wheel topped up with {} auctions ending before {} ({} pending)", added, horizon, wheel.size());
+    }
+
+    // Called when an item is created or its end time changes
+    public void schedule(Long itemId, LocalDateTime endsAt) {
+        if (wheel == null || endsAt == null) {
+            return;
+        }
+        if (endsAt.isAfter(LocalDateTime.now().plusMinutes(horizonMinutes))) {
+            // Picked up by a later refill; keeps the wheel sized to the horizon rather than the catalog
+            wheel.cancel(itemId);
+            return;
+        }
+        wheel.schedule(itemId, toMillis(endsAt));
+    }
+
+    void close(long itemId) {
+        try {
+            closeNow(itemId);
+        } catch (RuntimeException e) {
+            log.error("Failed to close auction {}", itemId, e);
+        }
+    }
+
+    public boolean closeNow(Long itemId) {
+        ItemBidState state = bidBook.state(itemId);
+        if (state == null) {
+            return false;
+        }
+        // Stop accepting first, then make sure every bid the book accepted has reached the table
+        state.close();
+        BidSnapshot last = state.snapshot();
+        Bid successfulBid = settledWinner(itemId, last);
+        if (last.getBidCount() > 0 && successfulBid == null) {
+            // Still in flight (or failing to insert); the state stays closed, so the high bid cannot change meanwhile
+            log.warn("High bid on auction {} has not reached the database, retrying the close in {} ms", itemId, retryMillis);
+            if (wheel != null) {
+                wheel.schedule(itemId, System.currentTimeMillis() + retryMillis);
+            }
+            return false;
+        }
+        Integer updated = transactionTemplate.execute(status ->
+                auctionItemRepository.close(itemId, successfulBid, LocalDateTime.now()));
+        bidEventHub.publish(itemId, last);
+        bidBook.evict(itemId);
+        if (updated != null && updated > 0) {
+            auctionItemCatalog.markClosed(itemId, successfulBid != null);
+            responseCache.invalidate("auction-items", itemId);
+            if (successfulBid != null) {
+                bidAnalytics.recordWin(successfulBid.getAmountMinor());
+            }
+            log.info("Closed auction {} with {}", itemId, successfulBid == null ? "no bids" : "winning bid " + successfulBid.getId());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The highest persisted bid once it matches the book's high bid, or null if it does not
+     * within settle-ms. A bid that passed the book's compare-and-set just before close() may
+     * still be in the journal's force and not yet queued, so one flush is not enough.
+     */
+    Bid settledWinner(Long itemId, BidSnapshot last) {
+        long deadline = System.currentTimeMillis() + settleMillis;
+        while (true) {
+            bidWriteBehind.flushNow();
+            Bid winner = bidRepository.findFirstByItem_IdOrderByAmountMinorDescDatetimeAsc(itemId).orElse(null);
+            if (last.getBidCount() == 0 || (winner != null && winner.getAmountMinor() >= last.getHighAmountMinor())) {
+                return winner;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return null;
+            }
+            BidWriteBehind.sleepQuietly(20);
+        }
+    }
+
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+        closer.shutdown();
+    }
+}
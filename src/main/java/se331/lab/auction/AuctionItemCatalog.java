@@ -0,0 +1,267 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import se331.lab.AuctionItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-per-array snapshot of every auction item for the list filters (type, price ceiling,
+ * open/closed/sold). A row is about 20 bytes: id, current price, a dictionary-encoded type and
+ * two bits, so a few million items stay well under 100 MB, and a filter is one pass over
+ * primitive arrays with no per-row allocation.
+ *
+ * <p>Rows are kept in id order. New items append, prices are raised in place under the read lock
+ * with a compare-and-set loop (concurrent bids on one item race for the same slot), and anything
+ * that moves rows, grows the arrays or flips a bit takes the write lock.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuctionItemCatalog implements ApplicationListener<ApplicationReadyEvent> {
+    public enum Status { OPEN, CLOSED, SOLD }
+
+    // No bid yet; never below any price ceiling
+    static final long NO_PRICE = Long.MAX_VALUE;
+
+    final JdbcTemplate jdbcTemplate;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    long[] ids = new long[1024];
+    AtomicLongArray prices = new AtomicLongArray(1024);
+    int[] typeCodes = new int[1024];
+    long[] closed = new long[16];
+    long[] sold = new long[16];
+    // Archived items; their rows stay until the next startup rather than shifting every row after them
+    long[] removed = new long[16];
+    int size;
+    final List<String> typeDictionary = new ArrayList<>();
+    final Map<String, Integer> typeCodeByName = new HashMap<>();
+    volatile boolean ready;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.query("select id, type, current_price_minor, closed_at is not null, successful_bid_id is not null "
+                        + "from auction_item order by id",
+                rs -> {
+                    long price = rs.getLong(3);
+                    put(rs.getLong(1), rs.getString(2), rs.wasNull() ? NO_PRICE : price, rs.getBoolean(4), rs.getBoolean(5));
+                });
+        ready = true;
+        log.info("Loaded {} auction items into the catalog ({} types) in {} ms",
+                size, typeDictionary.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(AuctionItem item) {
+        put(item.getId(), item.getType(), item.getCurrentPriceMinor() == null ? NO_PRICE : item.getCurrentPriceMinor(),
+                item.getClosedAt() != null || item.getSuccessfulBid() != null, item.getSuccessfulBid() != null);
+    }
+
+    public void updatePrice(Long itemId, long price) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, itemId);
+            if (row < 0) {
+                return;
+            }
+            long current = prices.get(row);
+            // A stale, lower price must never overwrite a higher one that landed first
+            while ((current == NO_PRICE || current < price) && !prices.compareAndSet(row, current, price)) {
+                current = prices.get(row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String typeOf(Long itemId) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, itemId);
+            return row >= 0 ? typeDictionary.get(typeCodes[row]) : "";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isClosed(Long itemId) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, itemId);
+            return row >= 0 && getBit(closed, row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void markClosed(Long itemId, boolean withWinner) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, itemId);
+            if (row >= 0) {
+                setBit(closed, row, true);
+                setBit(sold, row, withWinner);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, itemId);
+            if (row >= 0) {
+                setBit(removed, row, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the items matching every given filter (null means "any"), in id order, restricted to
+     * [offset, offset + limit). The total number of matches goes into {@code total[0]}.
+     * {@code type} matches when the item's type contains it, ignoring case; {@code maxSuccessfulMinor}
+     * is in minor units.
+     */
+    public long[] filter(String type, Long maxSuccessfulMinor, Status status, long offset, int limit, long[] total) {
+        lock.readLock().lock();
+        try {
+            boolean[] typeMatches = type == null ? null : typeMatches(type.toLowerCase(Locale.ROOT));
+            // Sold items are the only ones with a successful bid, so a price ceiling implies SOLD
+            boolean wantSold = maxSuccessfulMinor != null || status == Status.SOLD;
+            long ceiling = maxSuccessfulMinor == null ? NO_PRICE : maxSuccessfulMinor;
+            long[] page = new long[limit];
+            int taken = 0;
+            long matches = 0;
+            for (int row = 0; row < size; row++) {
+                long closedWord = closed[row >>> 6];
+                long soldWord = sold[row >>> 6];
+                long bit = 1L << row;
+                if ((removed[row >>> 6] & bit) != 0) {
+                    continue;
+                }
+                if (wantSold && ((soldWord & bit) == 0 || prices.get(row) >= ceiling)) {
+                    continue;
+                }
+                if (status == Status.OPEN && (closedWord & bit) != 0) {
+                    continue;
+                }
+                if (status == Status.CLOSED && (closedWord & bit) == 0) {
+                    continue;
+                }
+                if (typeMatches != null && !typeMatches[typeCodes[row]]) {
+                    continue;
+                }
+                if (matches >= offset && taken < limit) {
+                    page[taken++] = ids[row];
+                }
+                matches++;
+            }
+            total[0] = matches;
+            return taken == limit ? page : Arrays.copyOf(page, taken);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(long id, String type, long price, boolean isClosed, boolean isSold) {
+        lock.writeLock().lock();
+        try {
+            int code = typeCode(type);
+            int row = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0) {
+                row = insertRow(-row - 1);
+                ids[row] = id;
+            }
+            prices.set(row, price);
+            typeCodes[row] = code;
+            setBit(closed, row, isClosed);
+            setBit(sold, row, isSold);
+            setBit(removed, row, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Opens a slot at row, shifting later rows (and their bits) up by one; ids normally arrive in order so this is an append
+    private int insertRow(int row) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            AtomicLongArray grown = new AtomicLongArray(capacity);
+            for (int i = 0; i < size; i++) {
+                grown.set(i, prices.get(i));
+            }
+            prices = grown;
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+        }
+        if (((size + 1 + 63) >>> 6) > closed.length) {
+            closed = Arrays.copyOf(closed, closed.length * 2);
+            sold = Arrays.copyOf(sold, sold.length * 2);
+            removed = Arrays.copyOf(removed, removed.length * 2);
+        }
+        int tail = size - row;
+        System.arraycopy(ids, row, ids, row + 1, tail);
+        System.arraycopy(typeCodes, row, typeCodes, row + 1, tail);
+        for (int i = size; i > row; i--) {
+            prices.set(i, prices.get(i - 1));
+            setBit(closed, i, getBit(closed, i - 1));
+            setBit(sold, i, getBit(sold, i - 1));
+            setBit(removed, i, getBit(removed, i - 1));
+        }
+        size++;
+        return row;
+    }
+
+    private int typeCode(String type) {
+        String name = type == null ? "" : type;
+        Integer code = typeCodeByName.get(name);
+        if (code == null) {
+            code = typeDictionary.size();
+            typeDictionary.add(name);
+            typeCodeByName.put(name, code);
+        }
+        return code;
+    }
+
+    // Evaluated once per dictionary entry instead of once per row
+    private boolean[] typeMatches(String term) {
+        boolean[] matches = new boolean[typeDictionary.size()];
+        for (int code = 0; code < matches.length; code++) {
+            matches[code] = typeDictionary.get(code).toLowerCase(Locale.ROOT).contains(term);
+        }
+        return matches;
+    }
+
+    static boolean getBit(long[] bits, int row) {
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    static void setBit(long[] bits, int row, boolean value) {
+        if (value) {
+            bits[row >>> 6] |= 1L << row;
+        } else {
+            bits[row >>> 6] &= ~(1L << row);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds AuctionItem.currentPriceMinor / bidCount / lastBidAt from the bid rows. The write-behind
+ * keeps them in step transactionally, so this only has work to do after a crash or a manual edit.
+ * It walks the table in id ranges, one short statement each, and writes only the rows that drifted.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuctionItemReconciler implements ApplicationListener<ApplicationReadyEvent> {
+    static final String PRICE = "(select max(b.amount_minor) from bid b where b.item_id = i.id)";
+    static final String COUNT = "(select count(*) from bid b where b.item_id = i.id)";
+    static final String LAST_BID_AT = "(select max(b.datetime) from bid b where b.item_id = i.id)";
+    static final String NO_BID_AT = "timestamp '1970-01-01 00:00:00'";
+    static final String RECONCILE = "update auction_item i set "
+            + "current_price_minor = " + PRICE + ", bid_count = " + COUNT + ", last_bid_at = " + LAST_BID_AT + " "
+            + "where i.id between ? and ? and ("
+            + "coalesce(i.current_price_minor, -1) <> coalesce(" + PRICE + ", -1) "
+            + "or coalesce(i.bid_count, -1) <> " + COUNT + " "
+            + "or coalesce(i.last_bid_at, " + NO_BID_AT + ") <> coalesce(" + LAST_BID_AT + ", " + NO_BID_AT + "))";
+
+    final JdbcTemplate jdbcTemplate;
+    final BidWriteBehind bidWriteBehind;
+
+    @Value("${application.bids.reconcile-batch-size:1000}")
+    int batchSize;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${application.bids.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    public int reconcile() {
+        // Land queued bids first so the rebuilt columns include them
+        bidWriteBehind.flushNow();
+        long start = System.currentTimeMillis();
+        int updated = 0;
+        Long min = jdbcTemplate.queryForObject("select min(id) from auction_item", Long.class);
+        Long max = jdbcTemplate.queryForObject("select max(id) from auction_item", Long.class);
+        if (min != null) {
+            for (long from = min; from <= max; from += batchSize) {
+                updated += jdbcTemplate.update(RECONCILE, from, Math.min(max, from + batchSize - 1));
+            }
+        }
+        log.info("Reconciled denormalized bid columns on {} auction items in {} ms", updated, System.currentTimeMillis() - start);
+        return updated;
+    }
+}
@@ -0,0 +1,245 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import se331.lab.AuctionItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram inverted index over AuctionItem.description and type, so "contains" searches do not
+ * turn into LIKE '%term%' scans. Candidates come from intersecting the posting lists of the
+ * term's trigrams and are then checked against the indexed text, so results are exact.
+ * Terms shorter than a trigram cannot use the index and return null, as does a search before
+ * the startup build has finished; callers fall back to the database for those.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuctionItemSearchIndex implements ApplicationListener<ApplicationReadyEvent> {
+    static final int GRAM = 3;
+
+    final JdbcTemplate jdbcTemplate;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    final Map<Long, Postings> postings = new HashMap<>();
+    final Map<Long, Doc> docs = new HashMap<>();
+    volatile boolean ready;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        long start = System.currentTimeMillis();
+        // Streams the rows; ids arrive in order so posting lists are built by appending
+        jdbcTemplate.query("select id, description, type from auction_item order by id",
+                rs -> {
+                    put(rs.getLong(1), rs.getString(2), rs.getString(3));
+                });
+        ready = true;
+        log.info("Indexed {} auction items for search in {} ms", docs.size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(AuctionItem item) {
+        put(item.getId(), item.getDescription(), item.getType());
+    }
+
+    /**
+     * Ids of items whose description contains {@code description} or whose type contains
+     * {@code type} (either may be null), best matches first.
+     */
+    public long[] search(String description, String type) {
+        String d = normalize(description);
+        String t = normalize(type);
+        if (!ready || (d == null && t == null) || (d != null && d.length() < GRAM) || (t != null && t.length() < GRAM)) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = new LinkedHashSet<>();
+            if (d != null) {
+                candidates(d, candidates);
+            }
+            if (t != null && !t.equals(d)) {
+                candidates(t, candidates);
+            }
+            List<long[]> scored = new ArrayList<>(candidates.size());
+            for (Long id : candidates) {
+                Doc doc = docs.get(id);
+                int score = (d == null ? 0 : 2 * score(doc.description, d)) + (t == null ? 0 : score(doc.type, t));
+                if (score > 0) {
+                    scored.add(new long[]{id, score});
+                }
+            }
+            scored.sort(Comparator.<long[]>comparingLong(entry -> -entry[1]).thenComparingLong(entry -> entry[0]));
+            long[] ids = new long[scored.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = scored.get(i)[0];
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id, docs.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void put(Long id, String description, String type) {
+        Doc doc = new Doc(lower(description), lower(type));
+        lock.writeLock().lock();
+        try {
+            unindex(id, docs.put(id, doc));
+            for (long gram : doc.grams()) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(Long id, Doc previous) {
+        if (previous == null) {
+            return;
+        }
+        for (long gram : previous.grams()) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // Intersects the posting lists of every trigram in term, smallest list first
+    private void candidates(String term, Set<Long> into) {
+        Set<Long> grams = grams(term);
+        List<Postings> lists = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        Postings smallest = lists.get(0);
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            long id = smallest.ids[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) {
+                    continue outer;
+                }
+            }
+            into.add(id);
+        }
+    }
+
+    // Whole-field match beats prefix beats word start beats anywhere; 0 means no match
+    static int score(String text, String term) {
+        int at = text.indexOf(term);
+        if (at < 0) {
+            return 0;
+        }
+        if (text.length() == term.length()) {
+            return 8;
+        }
+        if (at == 0) {
+            return 4;
+        }
+        do {
+            if (!Character.isLetterOrDigit(text.charAt(at - 1))) {
+                return 2;
+            }
+            at = text.indexOf(term, at + 1);
+        } while (at > 0);
+        return 1;
+    }
+
+    static Set<Long> grams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    static String normalize(String term) {
+        if (term == null || term.isBlank()) {
+            return null;
+        }
+        return term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    static final class Doc {
+        final String description;
+        final String type;
+
+        Doc(String description, String type) {
+            this.description = description;
+            this.type = type;
+        }
+
+        Set<Long> grams() {
+            Set<Long> grams = AuctionItemSearchIndex.grams(description);
+            grams.addAll(AuctionItemSearchIndex.grams(type));
+            return grams;
+        }
+    }
+
+    // Sorted, growable id list; almost every add is an append because ids only grow
+    static final class Postings {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            int at = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0 && at < size) {
+                return;
+            }
+            int insert = at < 0 ? -at - 1 : at;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            ids[insert] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package se331.lab.auction;
+
+import java.time.LocalDateTime;
+
+public interface BidAcceptance {
+    BidResult accept(Long itemId, long amountMinor, String bidder, LocalDateTime at);
+
+    // True when accept() already wrote the Bid row, so it must not go through the write-behind queue
+    boolean persistsBids();
+}
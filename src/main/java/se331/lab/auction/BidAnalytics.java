@@ -0,0 +1,331 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se331.lab.AuctionStatsDTO;
+import se331.lab.Bid;
+import se331.lab.WinningBidStatsDTO;
+import se331.lab.util.Money;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Backs GET /auction-items/stats without querying the bid table per request. The bid table, and
+ * the bid histories of archived auctions, are read once into primitive columns at startup (and
+ * again on the rebuild cron), so stats do not drop as auctions are archived. Those columns are
+ * folded into rollups with a fork/join scan, and from then on every accepted bid and every closed
+ * auction updates the rollups directly.
+ *
+ * <p>Bids still in the write-behind queue when a rebuild scans the table are missed until the
+ * next one; the stats are for a dashboard, not for settlement.
+ *
+ * <p>Everything is summed in minor units and converted to major units only in the DTOs.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BidAnalytics implements ApplicationListener<ApplicationReadyEvent> {
+    static final int LEAF_ROWS = 1 << 16;
+
+    final JdbcTemplate jdbcTemplate;
+    final AuctionItemCatalog auctionItemCatalog;
+
+    @Value("${application.bids.analytics.hour-retention:720}")
+    int hourRetention;
+
+    volatile Rollups rollups = new Rollups();
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${application.bids.analytics.rebuild-cron:0 0 4 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        BidColumns columns = load();
+        rollups = fold(columns);
+        log.info("Bid analytics rebuilt from {} bids in {} ms", columns.size, System.currentTimeMillis() - start);
+    }
+
+    public void recordBid(Long itemId, long amountMinor, LocalDateTime at) {
+        Rollups current = rollups;
+        current.totalBids.increment();
+        current.sum.add(amountMinor);
+        current.min.accumulate(amountMinor);
+        current.max.accumulate(amountMinor);
+        current.bidsByType.computeIfAbsent(auctionItemCatalog.typeOf(itemId), type -> new LongAdder()).increment();
+        current.bidsByHour.computeIfAbsent(hourOf(at), hour -> new LongAdder()).increment();
+    }
+
+    public void recordWin(long amountMinor) {
+        rollups.winning.add(amountMinor);
+    }
+
+    public AuctionStatsDTO stats(int hours) {
+        Rollups current = rollups;
+        long total = current.totalBids.sum();
+        Map<String, Long> byType = new TreeMap<>();
+        current.bidsByType.forEach((type, count) -> byType.put(type, count.sum()));
+
+        long nowHour = hourOf(LocalDateTime.now());
+        long fromHour = nowHour - Math.min(hours, hourRetention) + 1;
+        Map<LocalDateTime, Long> perHour = new LinkedHashMap<>();
+        for (long hour = fromHour; hour <= nowHour; hour++) {
+            LongAdder count = current.bidsByHour.get(hour);
+            perHour.put(LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC), count == null ? 0 : count.sum());
+        }
+        current.bidsByHour.keySet().removeIf(hour -> hour < nowHour - hourRetention);
+
+        return AuctionStatsDTO.builder()
+                .totalBids(total)
+                .minBid(total == 0 ? null : Money.toMajor(current.min.get()))
+                .maxBid(total == 0 ? null : Money.toMajor(current.max.get()))
+                .avgBid(total == 0 ? null : Money.averageToMajor(current.sum.sum(), total))
+                .bidsByType(byType)
+                .bidsPerHour(perHour)
+                .winningBids(current.winning.stats())
+                .snapshotAt(current.builtAt)
+                .build();
+    }
+
+    BidColumns load() {
+        BidColumns columns = new BidColumns();
+        List<Long> winning = new ArrayList<>();
+        jdbcTemplate.query("select b.amount_minor, b.datetime, i.type, "
+                        + "case when i.successful_bid_id = b.id then 1 else 0 end "
+                        + "from bid b join auction_item i on i.id = b.item_id",
+                rs -> {
+                    long amount = rs.getLong(1);
+                    columns.add(amount, hourOf(rs.getTimestamp(2).toLocalDateTime()), rs.getString(3));
+                    if (rs.getInt(4) == 1) {
+                        winning.add(amount);
+                    }
+                });
+        jdbcTemplate.query("select type, successful_bid_id, bid_history from archived_auction_item",
+                rs -> {
+                    String type = rs.getString(1);
+                    long winner = rs.getLong(2);
+                    boolean sold = !rs.wasNull();
+                    for (Bid bid : BidHistoryCodec.decode(rs.getBytes(3))) {
+                        columns.add(bid.getAmountMinor(), hourOf(bid.getDatetime()), type);
+                        if (sold && bid.getId() == winner) {
+                            winning.add(bid.getAmountMinor());
+                        }
+                    }
+                });
+        columns.winning = winning.stream().mapToLong(Long::longValue).toArray();
+        return columns;
+    }
+
+    Rollups fold(BidColumns columns) {
+        long nowHour = hourOf(LocalDateTime.now());
+        Partial partial = ForkJoinPool.commonPool().invoke(
+                new ScanTask(columns, 0, columns.size, nowHour - hourRetention, hourRetention + 1));
+        Rollups next = new Rollups();
+        next.totalBids.add(partial.count);
+        next.sum.add(partial.sum);
+        if (partial.count > 0) {
+            next.min.accumulate(partial.min);
+            next.max.accumulate(partial.max);
+        }
+        for (int code = 0; code < partial.perType.length; code++) {
+            if (partial.perType[code] > 0) {
+                next.bidsByType.computeIfAbsent(columns.types.get(code), type -> new LongAdder()).add(partial.perType[code]);
+            }
+        }
+        for (int slot = 0; slot < partial.perHour.length; slot++) {
+            if (partial.perHour[slot] > 0) {
+                next.bidsByHour.computeIfAbsent(nowHour - hourRetention + slot, hour -> new LongAdder()).add(partial.perHour[slot]);
+            }
+        }
+        for (long amount : columns.winning) {
+            next.winning.add(amount);
+        }
+        return next;
+    }
+
+    static long hourOf(LocalDateTime at) {
+        return Math.floorDiv(at.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    // Snapshot of the bid table, one primitive array per column; types are dictionary encoded
+    static final class BidColumns {
+        long[] amounts = new long[1024];
+        long[] hours = new long[1024];
+        int[] typeCodes = new int[1024];
+        int size;
+        final List<String> types = new ArrayList<>();
+        final Map<String, Integer> codes = new HashMap<>();
+        long[] winning;
+
+        void add(long amount, long hour, String type) {
+            if (size == amounts.length) {
+                int capacity = size * 2;
+                amounts = Arrays.copyOf(amounts, capacity);
+                hours = Arrays.copyOf(hours, capacity);
+                typeCodes = Arrays.copyOf(typeCodes, capacity);
+            }
+            String name = type == null ? "" : type;
+            Integer code = codes.get(name);
+            if (code == null) {
+                code = types.size();
+                types.add(name);
+                codes.put(name, code);
+            }
+            amounts[size] = amount;
+            hours[size] = hour;
+            typeCodes[size] = code;
+            size++;
+        }
+    }
+
+    static final class Partial {
+        long count;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long[] perType;
+        long[] perHour;
+
+        Partial(int typeCount, int hourSlots) {
+            perType = new long[typeCount];
+            perHour = new long[hourSlots];
+        }
+
+        Partial merge(Partial other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            for (int i = 0; i < perType.length; i++) {
+                perType[i] += other.perType[i];
+            }
+            for (int i = 0; i < perHour.length; i++) {
+                perHour[i] += other.perHour[i];
+            }
+            return this;
+        }
+    }
+
+    static final class ScanTask extends RecursiveTask<Partial> {
+        final BidColumns columns;
+        final int from;
+        final int to;
+        final long firstHour;
+        final int hourSlots;
+
+        ScanTask(BidColumns columns, int from, int to, long firstHour, int hourSlots) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.firstHour = firstHour;
+            this.hourSlots = hourSlots;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, from, middle, firstHour, hourSlots);
+                left.fork();
+                Partial right = new ScanTask(columns, middle, to, firstHour, hourSlots).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial(columns.types.size(), hourSlots);
+            long[] amounts = columns.amounts;
+            long[] hours = columns.hours;
+            int[] typeCodes = columns.typeCodes;
+            for (int i = from; i < to; i++) {
+                long amount = amounts[i];
+                partial.sum += amount;
+                partial.min = Math.min(partial.min, amount);
+                partial.max = Math.max(partial.max, amount);
+                partial.perType[typeCodes[i]]++;
+                long slot = hours[i] - firstHour;
+                if (slot >= 0 && slot < hourSlots) {
+                    partial.perHour[(int) slot]++;
+                }
+            }
+            partial.count = to - from;
+            return partial;
+        }
+    }
+
+    static final class Rollups {
+        final LongAdder totalBids = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        final ConcurrentHashMap<String, LongAdder> bidsByType = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, LongAdder> bidsByHour = new ConcurrentHashMap<>();
+        final WinningBids winning = new WinningBids();
+        final LocalDateTime builtAt = LocalDateTime.now();
+    }
+
+    // Winning amounts are few (one per closed auction); percentiles sort a copy, reused until the next win
+    static final class WinningBids {
+        long[] amounts = new long[256];
+        int size;
+        long[] sorted = new long[0];
+
+        synchronized void add(long amount) {
+            if (size == amounts.length) {
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            amounts[size++] = amount;
+        }
+
+        WinningBidStatsDTO stats() {
+            long[] view;
+            synchronized (this) {
+                if (sorted.length != size) {
+                    view = Arrays.copyOf(amounts, size);
+                    Arrays.parallelSort(view);
+                    sorted = view;
+                }
+                view = sorted;
+            }
+            if (view.length == 0) {
+                return WinningBidStatsDTO.builder().count(0L).build();
+            }
+            long sum = 0;
+            for (long amount : view) {
+                sum += amount;
+            }
+            return WinningBidStatsDTO.builder()
+                    .count((long) view.length)
+                    .min(Money.toMajor(view[0]))
+                    .max(Money.toMajor(view[view.length - 1]))
+                    .avg(Money.averageToMajor(sum, view.length))
+                    .p50(percentile(view, 0.50))
+                    .p90(percentile(view, 0.90))
+                    .p99(percentile(view, 0.99))
+                    .build();
+        }
+
+        static double percentile(long[] sorted, double p) {
+            return Money.toMajor(sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)]);
+        }
+    }
+}
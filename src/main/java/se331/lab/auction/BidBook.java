@@ -0,0 +1,67 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import se331.lab.Bid;
+import se331.lab.repository.AuctionItemRepository;
+import se331.lab.repository.BidRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+public class BidBook {
+    final AuctionItemRepository auctionItemRepository;
+    final BidRepository bidRepository;
+    final ConcurrentHashMap<Long, ItemBidState> states = new ConcurrentHashMap<>();
+
+    // Returns null when the item does not exist
+    public ItemBidState state(Long itemId) {
+        ItemBidState state = states.get(itemId);
+        if (state != null) {
+            return state;
+        }
+        // Load outside of the map so a slow seed query never blocks other items' bins
+        BidSnapshot seed = loadSeed(itemId);
+        if (seed == null) {
+            return null;
+        }
+        ItemBidState loaded = new ItemBidState(seed);
+        ItemBidState existing = states.putIfAbsent(itemId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    public BidSnapshot peek(Long itemId) {
+        ItemBidState state = states.get(itemId);
+        return state == null ? null : state.snapshot();
+    }
+
+    // Only refreshes items that are already loaded; never triggers a seed query
+    public void observe(Long itemId, BidSnapshot snapshot) {
+        ItemBidState state = states.get(itemId);
+        if (state != null) {
+            state.observe(snapshot);
+        }
+    }
+
+    public void evict(Long itemId) {
+        states.remove(itemId);
+    }
+
+    BidSnapshot loadSeed(Long itemId) {
+        AuctionItemRepository.BidSeed seed = auctionItemRepository.findBidSeedById(itemId).orElse(null);
+        if (seed == null) {
+            return null;
+        }
+        BidSnapshot snapshot = BidSnapshot.open(seed.getStartingPriceMinor(), seed.getEndsAt());
+        if (seed.getBidCount() != null && seed.getBidCount() > 0 && seed.getCurrentPriceMinor() != null) {
+            // Price and count come from the denormalized columns; only the high bidder needs the bid table
+            String highBidder = bidRepository.findFirstByItem_IdOrderByAmountMinorDescDatetimeAsc(itemId)
+                    .map(Bid::getBidder)
+                    .orElse(null);
+            snapshot = new BidSnapshot(snapshot.getStartingPriceMinor(), seed.getCurrentPriceMinor(),
+                    seed.getBidCount(), highBidder, seed.getLastBidAt(), seed.getEndsAt(), false);
+        }
+        return seed.getClosedAt() != null || seed.getSuccessfulBidId() != null ? snapshot.asClosed() : snapshot;
+    }
+}
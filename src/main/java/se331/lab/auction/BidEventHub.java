@@ -0,0 +1,240 @@
+package se331.lab.auction;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import se331.lab.BidUpdateDTO;
+import se331.lab.util.Money;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-process fan-out of bid updates to SSE watchers. Every watcher has a single pending slot:
+ * a newer update overwrites an unsent one, so a slow client only ever gets the latest price.
+ *
+ * <p>A send to a client that stopped reading blocks its sender thread until the connector's
+ * write timeout. A watcher whose send has taken longer than send-timeout-ms is dropped: it gets
+ * nothing more, and its connection is closed once the write fails. The pool also gets one extra
+ * sender for as long as that thread stays stuck (up to max-sender-threads), so the other watchers
+ * keep getting their updates.
+ */
+@Component
+@Slf4j
+public class BidEventHub {
+    @Value("${application.bids.stream.max-watchers:10000}")
+    int maxWatchers;
+    @Value("${application.bids.stream.max-watchers-per-item:2000}")
+    int maxWatchersPerItem;
+    @Value("${application.bids.stream.timeout-ms:1800000}")
+    long timeoutMillis;
+    @Value("${application.bids.stream.sender-threads:4}")
+    int senderThreads;
+    @Value("${application.bids.stream.max-sender-threads:64}")
+    int maxSenderThreads;
+    @Value("${application.bids.stream.send-timeout-ms:5000}")
+    long sendTimeoutMillis;
+
+    final ConcurrentHashMap<Long, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+    final AtomicInteger watcherCount = new AtomicInteger();
+    // Sender threads blocked on a dropped watcher's write
+    final AtomicInteger stuckSenders = new AtomicInteger();
+    ThreadPoolExecutor senders;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        senders = new ThreadPoolExecutor(senderThreads, Math.max(senderThreads, maxSenderThreads), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "bid-stream-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Returns null when the watcher limits are reached
+    public SseEmitter subscribe(Long itemId, BidSnapshot current) {
+        if (watcherCount.incrementAndGet() > maxWatchers) {
+            watcherCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Watcher watcher = new Watcher(itemId, emitter);
+        AtomicBoolean added = new AtomicBoolean();
+        // Same key as remove()'s computeIfPresent, so the set cannot be dropped from the map between the check and the add
+        watchers.compute(itemId, (id, itemWatchers) -> {
+            if (itemWatchers == null) {
+                itemWatchers = ConcurrentHashMap.newKeySet();
+            }
+            if (itemWatchers.size() < maxWatchersPerItem) {
+                added.set(itemWatchers.add(watcher));
+            }
+            return itemWatchers.isEmpty() ? null : itemWatchers;
+        });
+        if (!added.get()) {
+            watcherCount.decrementAndGet();
+            return null;
+        }
+        emitter.onCompletion(() -> remove(watcher));
+        emitter.onTimeout(() -> remove(watcher));
+        emitter.onError(e -> remove(watcher));
+        if (current != null) {
+            watcher.offer(current);
+        }
+        return emitter;
+    }
+
+    public void publish(Long itemId, BidSnapshot snapshot) {
+        Set<Watcher> itemWatchers = watchers.get(itemId);
+        if (itemWatchers == null) {
+            return;
+        }
+        for (Watcher watcher : itemWatchers) {
+            watcher.offer(snapshot);
+        }
+    }
+
+    public int watcherCount() {
+        return watcherCount.get();
+    }
+
+    // Keeps idle connections open through proxies and flushes out clients that went away
+    @Scheduled(fixedDelayString = "${application.bids.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        watchers.values().forEach(itemWatchers -> itemWatchers.forEach(Watcher::heartbeat));
+    }
+
+    // Drops watchers whose send has been blocked for longer than send-timeout-ms
+    @Scheduled(fixedDelayString = "${application.bids.stream.laggard-check-ms:1000}")
+    public void dropLaggards() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        watchers.values().forEach(itemWatchers -> itemWatchers.forEach(watcher -> {
+            long since = watcher.sendingSince.get();
+            if (since != 0 && since != Watcher.STUCK && since - cutoff < 0
+                    && watcher.sendingSince.compareAndSet(since, Watcher.STUCK)) {
+                log.debug("Dropping bid stream watcher on item {}: not reading", watcher.itemId);
+                remove(watcher);
+                resizeSenders(stuckSenders.incrementAndGet());
+            }
+        }));
+    }
+
+    private void resizeSenders(int stuck) {
+        senders.setCorePoolSize(Math.min(senders.getMaximumPoolSize(), senderThreads + Math.max(0, stuck)));
+    }
+
+    void remove(Watcher watcher) {
+        if (!watcher.closed.compareAndSet(false, true)) {
+            return;
+        }
+        watcherCount.decrementAndGet();
+        watchers.computeIfPresent(watcher.itemId, (id, itemWatchers) -> {
+            itemWatchers.remove(watcher);
+            return itemWatchers.isEmpty() ? null : itemWatchers;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchers.values().forEach(itemWatchers -> itemWatchers.forEach(watcher -> watcher.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    static BidUpdateDTO toDto(Long itemId, BidSnapshot snapshot) {
+        return BidUpdateDTO.builder()
+                .itemId(itemId)
+                .currentPrice(Money.toMajor(snapshot.getCurrentPriceMinor()))
+                .bidCount(snapshot.getBidCount())
+                .highBidder(snapshot.getLastBidder())
+                .lastBidAt(snapshot.getLastBidAt())
+                .closed(snapshot.isClosed())
+                .build();
+    }
+
+    class Watcher {
+        // sendingSince once dropLaggards has given up on the send in progress
+        static final long STUCK = Long.MIN_VALUE;
+
+        final Long itemId;
+        final SseEmitter emitter;
+        final AtomicReference<BidSnapshot> pending = new AtomicReference<>();
+        final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        // System.nanoTime() when the send in progress started, 0 between sends
+        final AtomicLong sendingSince = new AtomicLong();
+
+        Watcher(Long itemId, SseEmitter emitter) {
+            this.itemId = itemId;
+            this.emitter = emitter;
+        }
+
+        void offer(BidSnapshot snapshot) {
+            pending.set(snapshot);
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        // At most one drain task per watcher is ever queued, so the sender queue is bounded by the watcher count
+        void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                BidSnapshot snapshot;
+                while (!closed.get() && (snapshot = pending.getAndSet(null)) != null) {
+                    heartbeatDue.set(false);
+                    send(SseEmitter.event().name("bid").data(toDto(itemId, snapshot)));
+                }
+                if (!closed.get() && heartbeatDue.getAndSet(false)) {
+                    send(SseEmitter.event().comment("keep-alive"));
+                }
+            } catch (Exception e) {
+                log.debug("Dropping bid stream watcher on item {}: {}", itemId, e.getMessage());
+                remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+                if (pending.get() != null) {
+                    schedule();
+                }
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws Exception {
+            // Odd, so never 0 (idle) or STUCK
+            sendingSince.set(System.nanoTime() | 1);
+            boolean dropped;
+            try {
+                emitter.send(event);
+            } finally {
+                dropped = sendingSince.getAndSet(0) == STUCK;
+                if (dropped) {
+                    resizeSenders(stuckSenders.decrementAndGet());
+                }
+            }
+            // The client caught up after all, but it has already been dropped
+            if (dropped) {
+                emitter.complete();
+            }
+        }
+    }
+}
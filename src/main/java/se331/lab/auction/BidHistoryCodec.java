@@ -0,0 +1,143 @@
+package se331.lab.auction;
+
+import se331.lab.Bid;
+import se331.lab.util.Money;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact encoding of an item's bid history for the archive. Bids are stored in id order as
+ * zigzag varint deltas of the previous bid (id, amount in minor units, time in microseconds) plus
+ * a varint index into a per-item bidder dictionary, so a typical bid takes a handful of bytes.
+ * Version 1 blobs, written while amounts were doubles, are still read.
+ */
+public final class BidHistoryCodec {
+    static final byte VERSION = 2;
+    static final byte VERSION_DOUBLE_AMOUNTS = 1;
+    static final byte AMOUNT_CENTS = 0;
+    static final byte AMOUNT_RAW = 1;
+
+    private BidHistoryCodec() {
+    }
+
+    public static byte[] encode(List<Bid> bids) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + bids.size() * 8);
+        out.write(VERSION);
+        writeVarint(out, bids.size());
+
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (Bid bid : bids) {
+            if (bid.getBidder() != null && !codes.containsKey(bid.getBidder())) {
+                codes.put(bid.getBidder(), dictionary.size());
+                dictionary.add(bid.getBidder());
+            }
+        }
+        writeVarint(out, dictionary.size());
+        for (String bidder : dictionary) {
+            byte[] bytes = bidder.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        long previousId = 0;
+        long previousMinor = 0;
+        long previousMicros = 0;
+        for (Bid bid : bids) {
+            writeVarint(out, zigzag(bid.getId() - previousId));
+            previousId = bid.getId();
+            long amountMinor = bid.getAmountMinor() == null ? 0 : bid.getAmountMinor();
+            writeVarint(out, zigzag(amountMinor - previousMinor));
+            previousMinor = amountMinor;
+            long micros = toMicros(bid.getDatetime());
+            writeVarint(out, zigzag(micros - previousMicros));
+            previousMicros = micros;
+            // 0 is a missing bidder, n is dictionary entry n - 1
+            writeVarint(out, bid.getBidder() == null ? 0 : codes.get(bid.getBidder()) + 1);
+        }
+        return out.toByteArray();
+    }
+
+    // The returned bids are detached: id, amount, bidder and datetime only
+    public static List<Bid> decode(byte[] blob) {
+        ByteBuffer in = ByteBuffer.wrap(blob);
+        byte version = in.get();
+        if (version != VERSION && version != VERSION_DOUBLE_AMOUNTS) {
+            throw new IllegalArgumentException("Unknown bid history version " + version);
+        }
+        int count = (int) readVarint(in);
+        int dictionarySize = (int) readVarint(in);
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            byte[] bytes = new byte[(int) readVarint(in)];
+            in.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        // Version 1 had a mode byte: cent deltas, or raw doubles when some amount was not whole cents
+        boolean raw = version == VERSION_DOUBLE_AMOUNTS && in.get() == AMOUNT_RAW;
+        List<Bid> bids = new ArrayList<>(count);
+        long id = 0;
+        long amountMinor = 0;
+        long micros = 0;
+        for (int i = 0; i < count; i++) {
+            id += unzigzag(readVarint(in));
+            if (raw) {
+                amountMinor = Money.toMinor(in.getDouble());
+            } else {
+                amountMinor += unzigzag(readVarint(in));
+            }
+            micros += unzigzag(readVarint(in));
+            int code = (int) readVarint(in);
+            bids.add(Bid.builder()
+                    .id(id)
+                    .amountMinor(amountMinor)
+                    .datetime(fromMicros(micros))
+                    .bidder(code == 0 ? null : dictionary[code - 1])
+                    .build());
+        }
+        return bids;
+    }
+
+    static long toMicros(LocalDateTime at) {
+        return at == null ? 0 : at.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + at.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import se331.lab.Bid;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of accepted bids, so an in-memory accept is durable before the
+ * write-behind queue has reached MySQL. Records are appended to memory-mapped segment files
+ * and made durable by a group commit: whichever appender finds no force in progress forces
+ * everything written so far, and the appenders that queued up behind it ride along.
+ *
+ * <p>Record layout: {@code int length | int crc32(payload) | payload}, where the payload is
+ * {@code long sequence | long itemId | long amountMinor | long epochSecond | int nano |
+ * short bidderLength | bidder (UTF-8)}. A zero length marks the unused tail of a segment.
+ *
+ * <p>A segment is deleted once it is no longer the one being written and every bid in it has been
+ * confirmed by the write-behind, or dead-lettered by it. Dead-lettered bids are appended to
+ * dead-letter.log in the journal directory first. On startup bids whose sequence is not yet in the
+ * bid table are inserted before anything else can bid.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+// The replay updates the *_minor columns, so they must be backfilled first
+@DependsOn({"entityManagerFactory", "moneyColumnsBackfill"})
+public class BidJournal {
+    static final int HEADER_BYTES = 8;
+    static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 8 + 8 + 4 + 2;
+    // Bidders are at most Bid.BIDDER_LENGTH characters, and UTF-8 takes at most 4 bytes for one
+    static final int MAX_BIDDER_BYTES = Bid.BIDDER_LENGTH * 4;
+    static final String DEAD_LETTER_FILE = "dead-letter.log";
+    static final String SEGMENT_PREFIX = "bids-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    final BidWriteBehind bidWriteBehind;
+    final BidBook bidBook;
+    final JdbcTemplate jdbcTemplate;
+    final MeterRegistry meterRegistry;
+
+    @Value("${application.bids.journal.dir:./bid-journal}")
+    String directory;
+    @Value("${application.bids.journal.segment-size-mb:64}")
+    int segmentSizeMb;
+
+    // Keyed by the first sequence a segment may hold
+    final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    final ReentrantLock appendLock = new ReentrantLock();
+    final AtomicLong nextSequence = new AtomicLong(1);
+    Path dir;
+    volatile Segment active;
+
+    Timer appendTimer;
+    Counter failures;
+
+    @PostConstruct
+    public void start() throws IOException {
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        appendTimer = Timer.builder("bids.journal.append")
+                .description("Append plus group-commit force of one bid")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        failures = meterRegistry.counter("bids.journal.failures");
+        meterRegistry.gauge("bids.journal.segments", segments, Map::size);
+
+        bidWriteBehind.onPersisted(this::markPersisted);
+        bidWriteBehind.onDeadLettered(this::markDeadLettered);
+        replay();
+        deleteCompletedSegments();
+        roll(nextSequence.get());
+    }
+
+    /**
+     * Journals an accepted bid and returns once it is on disk. The returned bid carries its
+     * journal sequence; if the journal could not be written the sequence is null and the caller
+     * has to persist the bid synchronously instead.
+     */
+    public PendingBid append(Long itemId, long amountMinor, String bidder, LocalDateTime at) {
+        byte[] bidderBytes = bidder.getBytes(StandardCharsets.UTF_8);
+        if (bidder.length() > Bid.BIDDER_LENGTH || bidderBytes.length > MAX_BIDDER_BYTES) {
+            return new PendingBid(null, itemId, amountMinor, bidder, at);
+        }
+        long start = System.nanoTime();
+        Segment segment;
+        long sequence;
+        int end;
+        appendLock.lock();
+        try {
+            int size = HEADER_BYTES + FIXED_PAYLOAD_BYTES + bidderBytes.length;
+            if (active == null || active.buffer.remaining() < size) {
+                roll(nextSequence.get());
+            }
+            segment = active;
+            sequence = nextSequence.getAndIncrement();
+            write(segment.buffer, sequence, itemId, amountMinor, at, bidderBytes);
+            segment.pending.incrementAndGet();
+            end = segment.buffer.position();
+            segment.written = end;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.error("Could not journal bid for item {}: {}", itemId, e.getMessage());
+            return new PendingBid(null, itemId, amountMinor, bidder, at);
+        } finally {
+            appendLock.unlock();
+        }
+        segment.sync(end);
+        appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new PendingBid(sequence, itemId, amountMinor, bidder, at);
+    }
+
+    void markPersisted(List<PendingBid> batch) {
+        boolean completedOne = false;
+        for (PendingBid bid : batch) {
+            if (bid.getSequence() == null) {
+                continue;
+            }
+            Map.Entry<Long, Segment> entry = segments.floorEntry(bid.getSequence());
+            if (entry != null && entry.getValue().pending.decrementAndGet() == 0) {
+                completedOne = true;
+            }
+        }
+        if (completedOne) {
+            deleteCompletedSegments();
+        }
+    }
+
+    // The bid can never be inserted: keep a copy, release its segment and let the book reload the item
+    void markDeadLettered(PendingBid bid) {
+        try {
+            Files.writeString(dir.resolve(DEAD_LETTER_FILE), bid + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Could not write dead-lettered bid {}: {}", bid, e.getMessage());
+        }
+        markPersisted(List.of(bid));
+        bidBook.evict(bid.getItemId());
+    }
+
+    void deleteCompletedSegments() {
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.pending.get() <= 0 && segments.remove(segment.firstSequence, segment)) {
+                segment.delete();
+            }
+        }
+    }
+
+    // Caller holds appendLock (or is start())
+    void roll(long firstSequence) throws IOException {
+        Segment previous = active;
+        if (previous != null) {
+            previous.sync(previous.written);
+        }
+        Path file = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Segment next = Segment.create(firstSequence, file, segmentSizeMb * 1024L * 1024L);
+        active = next;
+        segments.put(firstSequence, next);
+        if (previous != null && previous.pending.get() <= 0 && segments.remove(previous.firstSequence, previous)) {
+            previous.delete();
+        }
+    }
+
+    void replay() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        Long maxInDb = jdbcTemplate.queryForObject("select max(sequence) from bid", Long.class);
+        long highest = maxInDb == null ? 0 : maxInDb;
+        int recovered = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long firstSequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(firstSequence, file);
+            segments.put(firstSequence, segment);
+            List<PendingBid> records = segment.readAll();
+            highest = Math.max(highest, records.isEmpty() ? 0 : records.get(records.size() - 1).getSequence());
+            List<PendingBid> missing = withoutPersisted(records);
+            segment.pending.set(missing.size());
+            if (!missing.isEmpty()) {
+                // flush() reports back through markPersisted, which releases the segment; batches keep each INSERT
+                // well under MySQL's 65,535 placeholders
+                for (int from = 0; from < missing.size(); from += bidWriteBehind.batchSize) {
+                    bidWriteBehind.flush(missing.subList(from, Math.min(missing.size(), from + bidWriteBehind.batchSize)));
+                }
+                missing.forEach(bid -> bidBook.evict(bid.getItemId()));
+                recovered += missing.size();
+            }
+        }
+        nextSequence.set(highest + 1);
+        if (recovered > 0) {
+            log.info("Recovered {} journaled bids that had not reached the database", recovered);
+        }
+    }
+
+    List<PendingBid> withoutPersisted(List<PendingBid> records) {
+        if (records.isEmpty()) {
+            return records;
+        }
+        Set<Long> persisted = new HashSet<>(jdbcTemplate.queryForList(
+                "select sequence from bid where sequence between ? and ?", Long.class,
+                records.get(0).getSequence(), records.get(records.size() - 1).getSequence()));
+        List<PendingBid> missing = new ArrayList<>();
+        for (PendingBid record : records) {
+            if (!persisted.contains(record.getSequence())) {
+                missing.add(record);
+            }
+        }
+        return missing;
+    }
+
+    static void write(MappedByteBuffer buffer, long sequence, Long itemId, long amountMinor, LocalDateTime at, byte[] bidder) {
+        int start = buffer.position();
+        int payloadLength = FIXED_PAYLOAD_BYTES + bidder.length;
+        buffer.position(start + HEADER_BYTES);
+        buffer.putLong(sequence);
+        buffer.putLong(itemId);
+        buffer.putLong(amountMinor);
+        buffer.putLong(at.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(at.getNano());
+        buffer.putShort((short) bidder.length);
+        buffer.put(bidder);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start + HEADER_BYTES, payloadLength));
+        // Length goes in last, so a torn record reads as the end of the segment
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, payloadLength);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Segment current = active;
+        if (current != null) {
+            current.sync(current.written);
+            current.close();
+        }
+    }
+
+    static final class Segment {
+        final long firstSequence;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final AtomicLong pending = new AtomicLong();
+        volatile int written;
+        int forcedUpTo;
+        boolean forcing;
+
+        Segment(long firstSequence, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.firstSequence = firstSequence;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(long firstSequence, Path file, long size) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(firstSequence, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        static Segment open(long firstSequence, Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(firstSequence, file, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+
+        // Stops at the first empty, truncated or corrupt record: everything after it was never acknowledged
+        List<PendingBid> readAll() {
+            List<PendingBid> records = new ArrayList<>();
+            int position = 0;
+            while (position + HEADER_BYTES <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length < FIXED_PAYLOAD_BYTES || position + HEADER_BYTES + length > buffer.limit()) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(buffer.slice(position + HEADER_BYTES, length));
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    log.warn("Checksum mismatch in {} at offset {}, ignoring the rest of the segment", file, position);
+                    break;
+                }
+                int p = position + HEADER_BYTES;
+                long sequence = buffer.getLong(p);
+                long itemId = buffer.getLong(p + 8);
+                long amountMinor = buffer.getLong(p + 16);
+                LocalDateTime at = LocalDateTime.ofEpochSecond(buffer.getLong(p + 24), buffer.getInt(p + 32), ZoneOffset.UTC);
+                byte[] bidder = new byte[buffer.getShort(p + 36)];
+                buffer.get(p + FIXED_PAYLOAD_BYTES, bidder);
+                records.add(new PendingBid(sequence, itemId, amountMinor, new String(bidder, StandardCharsets.UTF_8), at));
+                position += HEADER_BYTES + length;
+            }
+            return records;
+        }
+
+        // Group commit: one caller forces the dirty range while the others wait for it to cover them
+        void sync(int upTo) {
+            while (true) {
+                int from;
+                synchronized (this) {
+                    if (forcedUpTo >= upTo) {
+                        return;
+                    }
+                    if (forcing) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        continue;
+                    }
+                    forcing = true;
+                    from = forcedUpTo;
+                }
+                int target = written;
+                try {
+                    buffer.force(from, target - from);
+                } finally {
+                    synchronized (this) {
+                        forcing = false;
+                        forcedUpTo = Math.max(forcedUpTo, target);
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close {}: {}", file, e.getMessage());
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package se331.lab.auction;
+
+import lombok.Value;
+
+@Value
+public class BidResult {
+    public enum Status {
+        ACCEPTED,
+        TOO_LOW,
+        CLOSED,
+        NOT_FOUND
+    }
+
+    Status status;
+    BidSnapshot snapshot;
+
+    public static BidResult accepted(BidSnapshot snapshot) {
+        return new BidResult(Status.ACCEPTED, snapshot);
+    }
+
+    public static BidResult rejected(Status status, BidSnapshot snapshot) {
+        return new BidResult(status, snapshot);
+    }
+
+    public static BidResult notFound() {
+        return new BidResult(Status.NOT_FOUND, null);
+    }
+
+    public boolean isAccepted() {
+        return status == Status.ACCEPTED;
+    }
+}
@@ -0,0 +1,43 @@
+package se331.lab.auction;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class BidSnapshot {
+    // Minor units, so accepting a bid is an exact long comparison with nothing boxed
+    long startingPriceMinor;
+    long highAmountMinor;
+    long bidCount;
+    String lastBidder;
+    LocalDateTime lastBidAt;
+    LocalDateTime endsAt;
+    boolean closed;
+
+    public static BidSnapshot open(Long startingPriceMinor, LocalDateTime endsAt) {
+        return new BidSnapshot(startingPriceMinor == null ? 0 : startingPriceMinor, 0, 0, null, null, endsAt, false);
+    }
+
+    // Bids past endsAt are refused even if the closing scheduler has not fired yet
+    public boolean isClosedAt(LocalDateTime at) {
+        return closed || (endsAt != null && !at.isBefore(endsAt));
+    }
+
+    // The first bid has to meet the starting price, every later one has to beat the current high
+    public boolean accepts(long amountMinor) {
+        return bidCount == 0 ? amountMinor >= startingPriceMinor : amountMinor > highAmountMinor;
+    }
+
+    public BidSnapshot withBid(long amountMinor, String bidder, LocalDateTime at) {
+        return new BidSnapshot(startingPriceMinor, amountMinor, bidCount + 1, bidder, at, endsAt, closed);
+    }
+
+    public BidSnapshot asClosed() {
+        return new BidSnapshot(startingPriceMinor, highAmountMinor, bidCount, lastBidder, lastBidAt, endsAt, true);
+    }
+
+    public Long getCurrentPriceMinor() {
+        return bidCount == 0 ? null : highAmountMinor;
+    }
+}
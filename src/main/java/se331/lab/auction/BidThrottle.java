@@ -0,0 +1,95 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Rate limit in front of bid acceptance: one token bucket per authenticated user, so a single
+ * client cannot flood the bid path (however many bidder names it makes up), and one per item, so
+ * a stampede on a hot item cannot starve every other item of request threads. Both are striped TokenBuckets, well under a MB however many bidders
+ * there are. The item limit is off unless item.rate is set: a hot item is expected to take
+ * thousands of bids a second.
+ */
+@Component
+@RequiredArgsConstructor
+public class BidThrottle {
+    final MeterRegistry meterRegistry;
+
+    @Value("${application.bids.throttle.enabled:true}")
+    boolean enabled;
+    @Value("${application.bids.throttle.stripes:65536}")
+    int stripes;
+    @Value("${application.bids.throttle.bidder.rate:5}")
+    double bidderRate;
+    @Value("${application.bids.throttle.bidder.burst:10}")
+    int bidderBurst;
+    // 0 leaves items unlimited
+    @Value("${application.bids.throttle.item.rate:0}")
+    double itemRate;
+    @Value("${application.bids.throttle.item.burst:10000}")
+    int itemBurst;
+
+    TokenBuckets bidders;
+    TokenBuckets items;
+    Counter allowed;
+    Counter throttledBidder;
+    Counter throttledItem;
+
+    @PostConstruct
+    public void start() {
+        bidders = new TokenBuckets(stripes, bidderRate, bidderBurst);
+        items = itemRate > 0 ? new TokenBuckets(Math.max(1, stripes / 16), itemRate, itemBurst) : null;
+        allowed = meterRegistry.counter("bids.throttle.allowed");
+        throttledBidder = meterRegistry.counter("bids.throttle.throttled", "scope", "bidder");
+        throttledItem = meterRegistry.counter("bids.throttle.throttled", "scope", "item");
+    }
+
+    // Throws 429 with Retry-After when either bucket is empty; a rejected bid takes no token from either
+    public void acquire(String username, Long itemId) {
+        if (!enabled) {
+            return;
+        }
+        int itemHash = Long.hashCode(itemId);
+        long wait = items == null ? 0 : items.waitMillis(itemHash);
+        if (wait > 0) {
+            throttledItem.increment();
+            throw new ThrottledException("Too many bids on this item", wait);
+        }
+        wait = bidders.tryTake(username.hashCode());
+        if (wait > 0) {
+            throttledBidder.increment();
+            throw new ThrottledException("Too many bids from this bidder", wait);
+        }
+        // The item bucket can still have run dry since the check above
+        wait = items == null ? 0 : items.tryTake(itemHash);
+        if (wait > 0) {
+            bidders.giveBack(username.hashCode());
+            throttledItem.increment();
+            throw new ThrottledException("Too many bids on this item", wait);
+        }
+        allowed.increment();
+    }
+
+    public static class ThrottledException extends ResponseStatusException {
+        final long retryAfterSeconds;
+
+        ThrottledException(String reason, long waitMillis) {
+            super(HttpStatus.TOO_MANY_REQUESTS, reason);
+            this.retryAfterSeconds = (waitMillis + 999) / 1000;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            return headers;
+        }
+    }
+}
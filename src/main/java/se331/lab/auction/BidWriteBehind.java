@@ -0,0 +1,366 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import se331.lab.cache.ResponseCache;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue between bid acceptance and MySQL. Bids are drained into multi-row
+ * INSERTs, flushed when a batch fills up or the flush interval runs out, whichever is first.
+ * A bid that still cannot be inserted on its own is kept in a retry queue and tried again every
+ * retry-ms. Its journal segment stays on disk until it gets in. A bid the database rejects outright
+ * (a constraint or column violation) is never going to get in: it is dead-lettered instead.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BidWriteBehind {
+    static final int MAX_ATTEMPTS = 3;
+    static final String UPDATE_ITEM_COLUMNS = "update auction_item set "
+            + "current_price_minor = case when current_price_minor is null or current_price_minor < ? then ? else current_price_minor end, "
+            + "bid_count = coalesce(bid_count, 0) + ?, "
+            + "last_bid_at = case when last_bid_at is null or last_bid_at < ? then ? else last_bid_at end "
+            + "where id = ?";
+
+    final JdbcTemplate jdbcTemplate;
+    final TransactionTemplate transactionTemplate;
+    final MeterRegistry meterRegistry;
+    final ResponseCache responseCache;
+
+    @Value("${application.bids.write-behind.capacity:10000}")
+    int capacity;
+    @Value("${application.bids.write-behind.batch-size:200}")
+    int batchSize;
+    @Value("${application.bids.write-behind.flush-interval-ms:50}")
+    long flushIntervalMillis;
+    @Value("${application.bids.write-behind.offer-timeout-ms:100}")
+    long offerTimeoutMillis;
+    @Value("${application.bids.write-behind.retry-ms:5000}")
+    long retryMillis;
+
+    // Fair, so flushNow() is not starved by the drainer re-acquiring it every cycle
+    final ReentrantLock flushLock = new ReentrantLock(true);
+    final List<Consumer<List<PendingBid>>> persistedListeners = new CopyOnWriteArrayList<>();
+    final List<Consumer<PendingBid>> deadLetterListeners = new CopyOnWriteArrayList<>();
+    // Everything enqueued and not yet committed (or dead-lettered), wherever it is on its way
+    final Set<PendingBid> unpersisted = ConcurrentHashMap.newKeySet();
+    // Bids that failed every attempt; retried by the drainer, nextRetryAt is only touched under flushLock
+    final Queue<PendingBid> retries = new ConcurrentLinkedQueue<>();
+    long nextRetryAt;
+    BlockingQueue<PendingBid> queue;
+    Thread drainer;
+    volatile boolean running;
+
+    Timer flushTimer;
+    DistributionSummary batchSizes;
+    Counter persisted;
+    Counter overflow;
+    Counter failures;
+    Counter deadLettered;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        meterRegistry.gauge("bids.write_behind.queue.depth", queue, BlockingQueue::size);
+        meterRegistry.gauge("bids.write_behind.retry.depth", retries, Queue::size);
+        flushTimer = Timer.builder("bids.write_behind.flush")
+                .description("Latency of one batched bid insert")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("bids.write_behind.batch.size").register(meterRegistry);
+        persisted = meterRegistry.counter("bids.write_behind.persisted");
+        overflow = meterRegistry.counter("bids.write_behind.overflow");
+        failures = meterRegistry.counter("bids.write_behind.failures");
+        deadLettered = meterRegistry.counter("bids.write_behind.dead_lettered");
+        // Cached bid listings were read before these rows existed
+        onPersisted(batch -> batch.stream().map(PendingBid::getItemId).distinct()
+                .forEach(itemId -> responseCache.invalidateItemLater("auction-items", itemId)));
+        onDeadLettered(bid -> responseCache.invalidateItemLater("auction-items", bid.getItemId()));
+
+        running = true;
+        drainer = new Thread(this::drainLoop, "bid-write-behind");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    public void enqueue(PendingBid bid) {
+        unpersisted.add(bid);
+        try {
+            if (running && queue.offer(bid, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Queue is saturated (or we are shutting down): write through rather than drop an accepted bid
+        overflow.increment();
+        flush(List.of(bid));
+    }
+
+    /**
+     * Inserts a bid that is not in the journal and returns once it has committed. Throws 503 if
+     * it could not be, in which case the bid must not be reported as accepted.
+     */
+    public void writeThrough(PendingBid bid) {
+        if (tryFlush(List.of(bid), MAX_ATTEMPTS) != null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Bid could not be saved, try again");
+        }
+    }
+
+    // Called with every batch once it has committed
+    public void onPersisted(Consumer<List<PendingBid>> listener) {
+        persistedListeners.add(listener);
+    }
+
+    // Called with every bid given up on; the bid never reaches the bid table
+    public void onDeadLettered(Consumer<PendingBid> listener) {
+        deadLetterListeners.add(listener);
+    }
+
+    /**
+     * The enqueued bids matching the filter that have not committed yet, for read paths that
+     * merge them with what they read from the bid table instead of flushing. A bid leaves this
+     * set only once it is in the table, so reading it before the table misses nothing.
+     */
+    public List<PendingBid> unpersisted(Predicate<PendingBid> filter) {
+        List<PendingBid> matches = new ArrayList<>();
+        for (PendingBid bid : unpersisted) {
+            if (filter.test(bid)) {
+                matches.add(bid);
+            }
+        }
+        return matches;
+    }
+
+    public int depth() {
+        return queue.size() + retries.size();
+    }
+
+    // Persists everything accepted so far before returning
+    public void flushNow() {
+        flushLock.lock();
+        try {
+            List<PendingBid> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                flush(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    void drainLoop() {
+        List<PendingBid> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            flushLock.lock();
+            try {
+                retryFailed();
+                PendingBid first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingBid next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                return;
+            } finally {
+                batch.clear();
+                flushLock.unlock();
+            }
+        }
+    }
+
+    void flush(List<PendingBid> batch) {
+        RuntimeException failure = batch.isEmpty() ? null : tryFlush(batch, MAX_ATTEMPTS);
+        if (failure == null) {
+            return;
+        }
+        // Retry row by row so a single bad bid cannot take the rest of the batch down with it
+        if (batch.size() > 1) {
+            for (PendingBid bid : batch) {
+                flush(List.of(bid));
+            }
+        } else if (failure instanceof DataIntegrityViolationException) {
+            deadLetter(batch.get(0), failure);
+        } else {
+            log.error("Bid failed {} attempts, keeping it for retry: {}", MAX_ATTEMPTS, batch.get(0));
+            retries.add(batch.get(0));
+        }
+    }
+
+    void deadLetter(PendingBid bid, RuntimeException failure) {
+        deadLettered.increment();
+        unpersisted.remove(bid);
+        log.error("Dead-lettering bid the database rejected: {} ({})", bid, failure.getMessage());
+        for (Consumer<PendingBid> listener : deadLetterListeners) {
+            listener.accept(bid);
+        }
+    }
+
+    // One attempt per held bid every retry-ms; caller holds flushLock
+    void retryFailed() {
+        if (retries.isEmpty() || System.currentTimeMillis() < nextRetryAt) {
+            return;
+        }
+        nextRetryAt = System.currentTimeMillis() + retryMillis;
+        for (int i = retries.size(); i > 0; i--) {
+            PendingBid bid = retries.poll();
+            if (bid == null) {
+                return;
+            }
+            RuntimeException failure = tryFlush(List.of(bid), 1);
+            if (failure instanceof DataIntegrityViolationException) {
+                deadLetter(bid, failure);
+            } else if (failure != null) {
+                retries.add(bid);
+            }
+        }
+    }
+
+    // Null once the batch has committed and the persisted listeners have seen it, otherwise the last failure
+    RuntimeException tryFlush(List<PendingBid> batch, int attempts) {
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            long start = System.nanoTime();
+            try {
+                insert(batch);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+                persisted.increment(batch.size());
+                batch.forEach(unpersisted::remove);
+                for (Consumer<List<PendingBid>> listener : persistedListeners) {
+                    listener.accept(batch);
+                }
+                return null;
+            } catch (RuntimeException e) {
+                failures.increment();
+                failure = e;
+                log.warn("Bid batch of {} failed (attempt {}/{}): {}", batch.size(), attempt, attempts, e.getMessage());
+                // The same rows get the same answer, however often they are sent
+                if (e instanceof DataIntegrityViolationException) {
+                    break;
+                }
+                if (attempt < attempts) {
+                    sleepQuietly(attempt * 100L);
+                }
+            }
+        }
+        return failure;
+    }
+
+    void insert(List<PendingBid> batch) {
+        StringBuilder sql = new StringBuilder("insert into bid (amount_minor, bidder, datetime, item_id, sequence) values ");
+        Object[] args = new Object[batch.size() * 5];
+        for (int i = 0; i < batch.size(); i++) {
+            PendingBid bid = batch.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            args[i * 5] = bid.getAmountMinor();
+            args[i * 5 + 1] = bid.getBidder();
+            args[i * 5 + 2] = Timestamp.valueOf(bid.getDatetime());
+            args[i * 5 + 3] = bid.getItemId();
+            args[i * 5 + 4] = bid.getSequence();
+        }
+        List<Object[]> itemUpdates = itemColumnUpdates(batch);
+        // Rows and the denormalized item columns commit together, so they can only drift on a crash
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(sql.toString(), args);
+            jdbcTemplate.batchUpdate(UPDATE_ITEM_COLUMNS, itemUpdates);
+        });
+    }
+
+    // One update per item in the batch, in id order so concurrent flushes lock rows in the same order
+    static List<Object[]> itemColumnUpdates(List<PendingBid> batch) {
+        Map<Long, ItemDelta> deltas = new TreeMap<>();
+        for (PendingBid bid : batch) {
+            deltas.computeIfAbsent(bid.getItemId(), id -> new ItemDelta()).add(bid);
+        }
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((itemId, delta) -> {
+            Timestamp lastBidAt = Timestamp.valueOf(delta.lastBidAt);
+            updates.add(new Object[]{delta.highAmount, delta.highAmount, delta.count, lastBidAt, lastBidAt, itemId});
+        });
+        return updates;
+    }
+
+    static class ItemDelta {
+        long highAmount = Long.MIN_VALUE;
+        long count;
+        LocalDateTime lastBidAt;
+
+        void add(PendingBid bid) {
+            highAmount = Math.max(highAmount, bid.getAmountMinor());
+            count++;
+            if (lastBidAt == null || bid.getDatetime().isAfter(lastBidAt)) {
+                lastBidAt = bid.getDatetime();
+            }
+        }
+    }
+
+    static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        drainer.join(TimeUnit.SECONDS.toMillis(30));
+        if (drainer.isAlive()) {
+            log.warn("Bid write-behind drainer still busy after 30s, flushing the remainder inline");
+        }
+        flushNow();
+        if (!retries.isEmpty()) {
+            log.warn("Bid write-behind stopped with {} failed bids; they are replayed from the journal on restart", retries.size());
+        }
+        log.info("Bid write-behind stopped with {} bids left in queue", queue.size());
+    }
+}
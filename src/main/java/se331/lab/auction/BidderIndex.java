@@ -0,0 +1,285 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import se331.lab.Bid;
+import se331.lab.BidderBidDTO;
+import se331.lab.LeaderboardEntryDTO;
+import se331.lab.util.Money;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Per-bidder views that would otherwise scan the bid table by its free-text bidder column.
+ *
+ * <p>The leaderboard ranks bidders by the total of the bids they currently hold as high bidder
+ * (including auctions they have won). It is kept in a skip list ordered by that total, updated
+ * as each accepted bid moves an item from its previous high bidder to the new one, so reading
+ * the top K is a walk over the first K entries. Only bidders holding at least one item are in it.
+ * Archived auctions count too: their histories are read along with the bid table at startup.
+ *
+ * <p>"My bids" keeps, per bidder, their highest bid and bid count per item. It is read from the
+ * bid table (plus their bids still queued for it) on first request and then maintained from
+ * accepted bids, for a bounded number of recently asked-for bidders. It covers auctions that are
+ * not archived yet; {@link #forget} drops an item from it when the archiver moves the item out.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BidderIndex implements ApplicationListener<ApplicationReadyEvent> {
+    final JdbcTemplate jdbcTemplate;
+    final BidWriteBehind bidWriteBehind;
+    final AuctionItemCatalog auctionItemCatalog;
+
+    @Value("${application.bidders.max-cached:10000}")
+    int maxCachedBidders;
+
+    final ConcurrentHashMap<Long, High> highByItem = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<String, Standing> standings = new ConcurrentHashMap<>();
+    final ConcurrentSkipListSet<Standing> leaderboard = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong((Standing standing) -> -standing.total).thenComparing(standing -> standing.bidder));
+
+    final Map<String, Map<Long, Position>> positions = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<Long, Position>> eldest) {
+            return size() > maxCachedBidders;
+        }
+    };
+    // Bidders being read from the bid table, with the bids accepted for them meanwhile; guarded by positions
+    final Map<String, Loading> loading = new HashMap<>();
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        // Bids only ever go up, so each item's maximum amount belongs to exactly one bid
+        jdbcTemplate.query("select b.item_id, b.bidder, b.amount_minor from bid b "
+                        + "join (select item_id, max(amount_minor) as amount_minor from bid group by item_id) m "
+                        + "on m.item_id = b.item_id and m.amount_minor = b.amount_minor",
+                rs -> {
+                    take(rs.getLong(1), rs.getString(2), rs.getLong(3));
+                });
+        jdbcTemplate.query("select id, bid_history from archived_auction_item",
+                rs -> {
+                    Bid high = null;
+                    for (Bid bid : BidHistoryCodec.decode(rs.getBytes(2))) {
+                        if (high == null || bid.getAmountMinor() > high.getAmountMinor()) {
+                            high = bid;
+                        }
+                    }
+                    if (high != null) {
+                        take(rs.getLong(1), high.getBidder(), high.getAmountMinor());
+                    }
+                });
+        log.info("Bidder leaderboard loaded with {} bidders holding {} items", standings.size(), highByItem.size());
+    }
+
+    public void onAccepted(Long itemId, String bidder, long amountMinor, LocalDateTime at) {
+        take(itemId, bidder, amountMinor);
+        Map<Long, Position> mine;
+        synchronized (positions) {
+            mine = positions.get(bidder);
+            Loading pending = mine == null ? loading.get(bidder) : null;
+            if (pending != null) {
+                pending.accepted.add(new PendingBid(null, itemId, amountMinor, bidder, at));
+            }
+        }
+        if (mine != null) {
+            synchronized (mine) {
+                mine.computeIfAbsent(itemId, id -> new Position()).add(amountMinor, 1, at);
+            }
+        }
+    }
+
+    // The item was archived; it stays on the leaderboard but leaves every cached "my bids"
+    public void forget(Long itemId) {
+        List<Map<Long, Position>> cached;
+        synchronized (positions) {
+            cached = new ArrayList<>(positions.values());
+        }
+        for (Map<Long, Position> mine : cached) {
+            synchronized (mine) {
+                mine.remove(itemId);
+            }
+        }
+    }
+
+    public List<LeaderboardEntryDTO> leaderboard(int limit) {
+        List<LeaderboardEntryDTO> top = new ArrayList<>(limit);
+        Iterator<Standing> iterator = leaderboard.iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            Standing standing = iterator.next();
+            top.add(LeaderboardEntryDTO.builder()
+                    .rank(top.size() + 1)
+                    .bidder(standing.bidder)
+                    .winningTotal(Money.toMajor(standing.total))
+                    .itemsWinning(standing.items)
+                    .build());
+        }
+        return top;
+    }
+
+    // Most recently bid-on first
+    public List<BidderBidDTO> bidsOf(String bidder) {
+        Map<Long, Position> mine;
+        synchronized (positions) {
+            mine = positions.get(bidder);
+        }
+        if (mine == null) {
+            mine = load(bidder);
+        }
+        List<BidderBidDTO> bids = new ArrayList<>();
+        synchronized (mine) {
+            mine.forEach((itemId, position) -> {
+                High high = highByItem.get(itemId);
+                boolean holding = high != null && high.bidder.equals(bidder);
+                boolean closed = auctionItemCatalog.isClosed(itemId);
+                bids.add(BidderBidDTO.builder()
+                        .itemId(itemId)
+                        .highestBid(Money.toMajor(position.highest))
+                        .bids(position.count)
+                        .lastBidAt(position.lastBidAt)
+                        .currentPrice(high == null ? null : Money.toMajor(high.amount))
+                        .status(closed ? (holding ? "WON" : "LOST") : (holding ? "WINNING" : "OUTBID"))
+                        .build());
+            });
+        }
+        bids.sort(Comparator.comparing(BidderBidDTO::getLastBidAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return bids;
+    }
+
+    // Caches and returns the bidder's positions without flushing the write-behind queue
+    Map<Long, Position> load(String bidder) {
+        Loading pending;
+        synchronized (positions) {
+            pending = loading.computeIfAbsent(bidder, name -> new Loading());
+            pending.loaders++;
+        }
+        try {
+            // Queued bids are read before the table: a bid leaves the queue only once it is in the table
+            List<PendingBid> queued = bidWriteBehind.unpersisted(bid -> bidder.equals(bid.getBidder()));
+            Map<Long, Position> mine = new LinkedHashMap<>();
+            // A bid can be in more than one source; an item's amounts are unique, so they identify it
+            Set<Map.Entry<Long, Long>> seen = new HashSet<>();
+            jdbcTemplate.query("select item_id, amount_minor, datetime from bid where bidder = ?",
+                    rs -> {
+                        add(mine, seen, rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).toLocalDateTime());
+                    }, bidder);
+            queued.forEach(bid -> add(mine, seen, bid.getItemId(), bid.getAmountMinor(), bid.getDatetime()));
+            synchronized (positions) {
+                Map<Long, Position> raced = positions.get(bidder);
+                if (raced != null) {
+                    return raced;
+                }
+                // Accepted while the table was read, so possibly in neither the snapshot nor the rows
+                pending.accepted.forEach(bid -> add(mine, seen, bid.getItemId(), bid.getAmountMinor(), bid.getDatetime()));
+                positions.put(bidder, mine);
+                return mine;
+            }
+        } finally {
+            synchronized (positions) {
+                if (--pending.loaders == 0) {
+                    loading.remove(bidder);
+                }
+            }
+        }
+    }
+
+    private static void add(Map<Long, Position> mine, Set<Map.Entry<Long, Long>> seen, Long itemId, long amount, LocalDateTime at) {
+        if (seen.add(Map.entry(itemId, amount))) {
+            mine.computeIfAbsent(itemId, id -> new Position()).add(amount, 1, at);
+        }
+    }
+
+    // Moves the item to bidder if amount beats its current high, and re-ranks both bidders
+    void take(Long itemId, String bidder, long amount) {
+        High[] displaced = new High[1];
+        boolean[] taken = new boolean[1];
+        highByItem.compute(itemId, (id, high) -> {
+            if (high != null && high.amount >= amount) {
+                return high;
+            }
+            displaced[0] = high;
+            taken[0] = true;
+            return new High(bidder, amount);
+        });
+        if (!taken[0]) {
+            return;
+        }
+        if (displaced[0] != null) {
+            adjust(displaced[0].bidder, -displaced[0].amount, -1);
+        }
+        adjust(bidder, amount, 1);
+    }
+
+    private void adjust(String bidder, long delta, long items) {
+        standings.compute(bidder, (name, standing) -> {
+            if (standing != null) {
+                leaderboard.remove(standing);
+            }
+            long held = (standing == null ? 0 : standing.items) + items;
+            if (held <= 0) {
+                return null;
+            }
+            Standing next = new Standing(name, (standing == null ? 0 : standing.total) + delta, held);
+            leaderboard.add(next);
+            return next;
+        });
+    }
+
+    static final class High {
+        final String bidder;
+        final long amount;
+
+        High(String bidder, long amount) {
+            this.bidder = bidder;
+            this.amount = amount;
+        }
+    }
+
+    static final class Standing {
+        final String bidder;
+        final long total;
+        final long items;
+
+        Standing(String bidder, long total, long items) {
+            this.bidder = bidder;
+            this.total = total;
+            this.items = items;
+        }
+    }
+
+    static final class Loading {
+        final List<PendingBid> accepted = new ArrayList<>();
+        int loaders;
+    }
+
+    static final class Position {
+        long highest = Long.MIN_VALUE;
+        long count;
+        LocalDateTime lastBidAt;
+
+        void add(long amount, long bids, LocalDateTime at) {
+            highest = Math.max(highest, amount);
+            count += bids;
+            if (lastBidAt == null || at.isAfter(lastBidAt)) {
+                lastBidAt = at;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package se331.lab.auction;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+/**
+ * Hashed timer wheel keyed by auction item id. One tick thread owns the buckets. Scheduling and
+ * cancelling only touch a lock-free hand-off queue and the id index, so hundreds of thousands of
+ * pending closings cost one small object each rather than one scheduled task each.
+ */
+@Slf4j
+public class HashedTimerWheel {
+    final long tickMillis;
+    final int mask;
+    final Queue<Timeout>[] buckets;
+    final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    final ConcurrentHashMap<Long, Timeout> byId = new ConcurrentHashMap<>();
+    final LongConsumer onExpiry;
+    final Executor expiryExecutor;
+    final Thread worker;
+    final long startMillis;
+    volatile boolean running = true;
+    long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickMillis, int wheelSize, LongConsumer onExpiry, Executor expiryExecutor) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.onExpiry = onExpiry;
+        this.expiryExecutor = expiryExecutor;
+        this.startMillis = System.currentTimeMillis();
+        this.worker = new Thread(this::run, "auction-timer-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // (Re)schedules the id; a deadline in the past fires on the next tick
+    public void schedule(long id, long deadlineMillis) {
+        Timeout timeout = new Timeout(id, deadlineMillis);
+        Timeout previous = byId.put(id, timeout);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        incoming.add(timeout);
+    }
+
+    public void cancel(long id) {
+        Timeout timeout = byId.remove(id);
+        if (timeout != null) {
+            timeout.cancelled = true;
+        }
+    }
+
+    public boolean isScheduled(long id) {
+        return byId.containsKey(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    void run() {
+        while (running) {
+            long nextTickAt = startMillis + (tick + 1) * tickMillis;
+            long sleep = nextTickAt - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            }
+            try {
+                transferIncoming();
+                expire(buckets[(int) (tick & mask)], System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                log.error("Timer wheel tick {} failed", tick, e);
+            }
+            tick++;
+        }
+    }
+
+    void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long deadlineTick = Math.max(0, (timeout.deadlineMillis - startMillis + tickMillis - 1) / tickMillis);
+            long ticks = Math.max(deadlineTick, tick);
+            timeout.remainingRounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    void expire(Queue<Timeout> bucket, long now) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0 && timeout.deadlineMillis <= now) {
+                iterator.remove();
+                if (byId.remove(timeout.id, timeout)) {
+                    expiryExecutor.execute(() -> onExpiry.accept(timeout.id));
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    static class Timeout {
+        final long id;
+        final long deadlineMillis;
+        long remainingRounds;
+        volatile boolean cancelled;
+
+        Timeout(long id, long deadlineMillis) {
+            this.id = id;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
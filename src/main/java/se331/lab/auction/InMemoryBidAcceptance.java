@@ -0,0 +1,28 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+@Profile("!cluster & !partitioned")
+public class InMemoryBidAcceptance implements BidAcceptance {
+    final BidBook bidBook;
+
+    @Override
+    public BidResult accept(Long itemId, long amountMinor, String bidder, LocalDateTime at) {
+        ItemBidState state = bidBook.state(itemId);
+        if (state == null) {
+            return BidResult.notFound();
+        }
+        return state.tryAccept(amountMinor, bidder, at);
+    }
+
+    @Override
+    public boolean persistsBids() {
+        return false;
+    }
+}
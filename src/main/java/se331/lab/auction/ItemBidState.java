@@ -0,0 +1,42 @@
+package se331.lab.auction;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ItemBidState {
+    final AtomicReference<BidSnapshot> current;
+
+    public ItemBidState(BidSnapshot seed) {
+        this.current = new AtomicReference<>(seed);
+    }
+
+    public BidSnapshot snapshot() {
+        return current.get();
+    }
+
+    // Lock-free accept: a losing CAS re-reads the winner's snapshot and re-validates against it
+    public BidResult tryAccept(long amountMinor, String bidder, LocalDateTime at) {
+        while (true) {
+            BidSnapshot snapshot = current.get();
+            if (snapshot.isClosedAt(at)) {
+                return BidResult.rejected(BidResult.Status.CLOSED, snapshot);
+            }
+            if (!snapshot.accepts(amountMinor)) {
+                return BidResult.rejected(BidResult.Status.TOO_LOW, snapshot);
+            }
+            BidSnapshot next = snapshot.withBid(amountMinor, bidder, at);
+            if (current.compareAndSet(snapshot, next)) {
+                return BidResult.accepted(next);
+            }
+        }
+    }
+
+    // Adopts a snapshot read from the database unless this one has already seen more bids
+    public void observe(BidSnapshot observed) {
+        current.updateAndGet(snapshot -> observed.getBidCount() >= snapshot.getBidCount() ? observed : snapshot);
+    }
+
+    public void close() {
+        current.updateAndGet(BidSnapshot::asClosed);
+    }
+}
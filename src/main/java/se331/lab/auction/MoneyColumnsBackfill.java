@@ -0,0 +1,51 @@
+package se331.lab.auction;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the *_minor money columns from the double columns they replaced. ddl-auto only adds the
+ * new columns, so on a database created before the switch every existing bid and price would
+ * read as missing. BidJournal depends on this bean, so it runs before the journal replay, and the
+ * startup loaders wait for ApplicationReadyEvent, which comes after every bean is initialized.
+ * On a fresh database the old columns do not exist and every statement is skipped.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class MoneyColumnsBackfill {
+    static final String[][] COLUMNS = {
+            {"bid", "amount", "amount_minor"},
+            {"auction_item", "starting_price", "starting_price_minor"},
+            {"auction_item", "current_price", "current_price_minor"},
+            {"archived_auction_item", "starting_price", "starting_price_minor"},
+            {"archived_auction_item", "current_price", "current_price_minor"},
+    };
+
+    final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        for (String[] column : COLUMNS) {
+            String table = column[0];
+            String legacy = column[1];
+            String minor = column[2];
+            try {
+                // round() on the DECIMAL cast, so 0.29 (stored as 0.28999...) becomes 29
+                int updated = jdbcTemplate.update("update " + table + " set " + minor + " = round(cast(" + legacy
+                        + " as decimal(19, 4)) * 100) where " + minor + " is null and " + legacy + " is not null");
+                if (updated > 0) {
+                    log.info("Backfilled {} {}.{} values from {}", updated, table, minor, legacy);
+                }
+            } catch (DataAccessException e) {
+                log.debug("No legacy {}.{} column to backfill from", table, legacy);
+            }
+        }
+    }
+}
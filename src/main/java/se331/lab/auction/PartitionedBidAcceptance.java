@@ -0,0 +1,205 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bid acceptance where every item belongs to exactly one partition thread, chosen by item id.
+ * Request threads hand the bid to the owning partition and wait for its answer, so a hot item
+ * never has more than one thread deciding its bids and no CAS retry storms build up behind it.
+ * The bid book state is still shared for reads; the closing scheduler is the only other writer.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@Profile("partitioned & !cluster")
+public class PartitionedBidAcceptance implements BidAcceptance {
+    final BidBook bidBook;
+    final MeterRegistry meterRegistry;
+
+    @Value("${application.bids.partitions.count:0}")
+    int partitionCount;
+    @Value("${application.bids.partitions.capacity:4096}")
+    int capacity;
+    @Value("${application.bids.partitions.timeout-ms:1000}")
+    long timeoutMs;
+
+    Partition[] partitions;
+    Timer acceptTimer;
+    Counter rejectedBusy;
+    Counter timedOut;
+
+    @PostConstruct
+    public void start() {
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new Partition(i, capacity);
+            int index = i;
+            Gauge.builder("bids.partitions.queue.depth", partitions[i].inbox, ArrayBlockingQueue::size)
+                    .tag("partition", String.valueOf(index))
+                    .register(meterRegistry);
+            partitions[i].start();
+        }
+        acceptTimer = Timer.builder("bids.partitions.accept").publishPercentiles(0.5, 0.99, 0.999).register(meterRegistry);
+        rejectedBusy = meterRegistry.counter("bids.partitions.rejected_busy");
+        timedOut = meterRegistry.counter("bids.partitions.timed_out");
+        log.info("Accepting bids on {} single-writer partitions", count);
+    }
+
+    @Override
+    public BidResult accept(Long itemId, long amountMinor, String bidder, LocalDateTime at) {
+        // Seed loading may hit the database, so it happens here and never on a partition thread
+        ItemBidState state = bidBook.state(itemId);
+        if (state == null) {
+            return BidResult.notFound();
+        }
+        long start = System.nanoTime();
+        try {
+            Command command = new Command(state, amountMinor, bidder, at);
+            Partition partition = partitions[partitionOf(itemId, partitions.length)];
+            if (!partition.inbox.offer(command, timeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedBusy.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Bidding is busy, try again");
+            }
+            return await(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Bid was interrupted");
+        } finally {
+            acceptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean persistsBids() {
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Partition partition : partitions) {
+            partition.interrupt();
+        }
+    }
+
+    BidResult await(Command command) throws InterruptedException {
+        try {
+            return command.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (command.abandon()) {
+                timedOut.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Bidding is busy, try again");
+            }
+            // The partition has already started on it; the answer is a few microseconds away
+            return join(command);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bid partition failed", e.getCause());
+        }
+    }
+
+    private static BidResult join(Command command) throws InterruptedException {
+        try {
+            return command.result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bid partition failed", e.getCause());
+        }
+    }
+
+    // Spreads sequential ids so neighbouring items don't all land on the same partitions
+    static int partitionOf(long itemId, int partitionCount) {
+        long h = itemId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) partitionCount);
+    }
+
+    static final class Command {
+        static final int QUEUED = 0;
+        static final int CLAIMED = 1;
+        static final int ABANDONED = 2;
+
+        final ItemBidState state;
+        final long amountMinor;
+        final String bidder;
+        final LocalDateTime at;
+        final CompletableFuture<BidResult> result = new CompletableFuture<>();
+        final AtomicInteger phase = new AtomicInteger(QUEUED);
+
+        Command(ItemBidState state, long amountMinor, String bidder, LocalDateTime at) {
+            this.state = state;
+            this.amountMinor = amountMinor;
+            this.bidder = bidder;
+            this.at = at;
+        }
+
+        // Exactly one of claim() and abandon() wins, so a timed-out bid is either never applied or fully answered
+        boolean claim() {
+            return phase.compareAndSet(QUEUED, CLAIMED);
+        }
+
+        boolean abandon() {
+            return phase.compareAndSet(QUEUED, ABANDONED);
+        }
+    }
+
+    static final class Partition extends Thread {
+        static final int DRAIN_LIMIT = 256;
+
+        final ArrayBlockingQueue<Command> inbox;
+
+        Partition(int index, int capacity) {
+            super("bid-partition-" + index);
+            this.inbox = new ArrayBlockingQueue<>(capacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(DRAIN_LIMIT);
+            while (!isInterrupted()) {
+                try {
+                    batch.add(inbox.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                inbox.drainTo(batch, DRAIN_LIMIT - 1);
+                for (Command command : batch) {
+                    apply(command);
+                }
+                batch.clear();
+            }
+        }
+
+        private static void apply(Command command) {
+            if (!command.claim()) {
+                return;
+            }
+            try {
+                // Only this thread accepts bids for the item, so the CAS inside succeeds first time
+                command.result.complete(command.state.tryAccept(command.amountMinor, command.bidder, command.at));
+            } catch (RuntimeException e) {
+                command.result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package se331.lab.auction;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class PendingBid {
+    // Position in the bid journal, null when the bid was never journaled
+    Long sequence;
+    Long itemId;
+    long amountMinor;
+    String bidder;
+    LocalDateTime datetime;
+}
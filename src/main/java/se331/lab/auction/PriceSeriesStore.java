@@ -0,0 +1,239 @@
+package se331.lab.auction;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import se331.lab.Bid;
+import se331.lab.PricePointDTO;
+import se331.lab.util.Money;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Price-over-time for the item page chart, so the browser never has to load the whole bid list.
+ * Each item keeps a fixed number of equal-width OHLC buckets; when a bid falls past the last
+ * bucket, neighbouring buckets are merged pairwise and the width doubles, so memory per item is
+ * constant however long the auction runs. Series are built from the bid table (plus the item's
+ * bids still queued for it) on first request and kept (LRU-bounded) while accepted bids update them.
+ */
+@Component
+@RequiredArgsConstructor
+public class PriceSeriesStore {
+    static final int BUCKETS = 256;
+    static final long INITIAL_WIDTH_MILLIS = 1000;
+
+    final JdbcTemplate jdbcTemplate;
+    final BidWriteBehind bidWriteBehind;
+
+    @Value("${application.auctions.price-series.max-items:10000}")
+    int maxItems;
+
+    final Map<Long, Series> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Series> eldest) {
+            return size() > maxItems;
+        }
+    };
+    // Items being read from the bid table, with the bids accepted for them meanwhile; guarded by cache
+    final Map<Long, Loading> loading = new HashMap<>();
+
+    // Only series already in memory are updated; the rest are read from the bid table when first asked for
+    public void record(Long itemId, long amountMinor, LocalDateTime at) {
+        Series series;
+        synchronized (cache) {
+            series = cache.get(itemId);
+            Loading pending = series == null ? loading.get(itemId) : null;
+            if (pending != null) {
+                pending.accepted.put(amountMinor, at);
+            }
+        }
+        if (series != null) {
+            series.add(toMillis(at), amountMinor);
+        }
+    }
+
+    public List<PricePointDTO> series(Long itemId, int buckets) {
+        Series series;
+        synchronized (cache) {
+            series = cache.get(itemId);
+        }
+        if (series == null) {
+            series = load(itemId);
+        }
+        return series.downsample(buckets);
+    }
+
+    // For bids that are not in the bid table (archived items); nothing is cached
+    public static List<PricePointDTO> series(List<Bid> bids, int buckets) {
+        Series series = new Series();
+        bids.stream()
+                .sorted(Comparator.comparing(Bid::getDatetime).thenComparing(Bid::getId))
+                .forEach(bid -> series.add(toMillis(bid.getDatetime()), bid.getAmountMinor()));
+        return series.downsample(buckets);
+    }
+
+    public void evict(Long itemId) {
+        synchronized (cache) {
+            cache.remove(itemId);
+        }
+    }
+
+    // Caches and returns the item's series without flushing the write-behind queue
+    Series load(Long itemId) {
+        Loading pending;
+        synchronized (cache) {
+            pending = loading.computeIfAbsent(itemId, id -> new Loading());
+            pending.loaders++;
+        }
+        try {
+            // Queued bids are read before the table: a bid leaves the queue only once it is in the table.
+            // An item's bids only go up, so keying by amount both dedups the sources and orders them by time.
+            TreeMap<Long, LocalDateTime> bids = new TreeMap<>();
+            List<PendingBid> queued = bidWriteBehind.unpersisted(bid -> itemId.equals(bid.getItemId()));
+            jdbcTemplate.query("select amount_minor, datetime from bid where item_id = ?",
+                    rs -> {
+                        bids.put(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime());
+                    }, itemId);
+            queued.forEach(bid -> bids.putIfAbsent(bid.getAmountMinor(), bid.getDatetime()));
+            synchronized (cache) {
+                Series raced = cache.get(itemId);
+                if (raced != null) {
+                    return raced;
+                }
+                // Accepted while the table was read, so possibly in neither the snapshot nor the rows
+                pending.accepted.forEach(bids::putIfAbsent);
+                Series series = new Series();
+                bids.forEach((amount, at) -> series.add(toMillis(at), amount));
+                cache.put(itemId, series);
+                return series;
+            }
+        } finally {
+            synchronized (cache) {
+                if (--pending.loaders == 0) {
+                    loading.remove(itemId);
+                }
+            }
+        }
+    }
+
+    static long toMillis(LocalDateTime at) {
+        return at.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    static final class Loading {
+        final Map<Long, LocalDateTime> accepted = new HashMap<>();
+        int loaders;
+    }
+
+    static final class Series {
+        long origin = Long.MIN_VALUE;
+        long width = INITIAL_WIDTH_MILLIS;
+        int used;
+        final long[] open = new long[BUCKETS];
+        final long[] high = new long[BUCKETS];
+        final long[] low = new long[BUCKETS];
+        final long[] close = new long[BUCKETS];
+        final int[] count = new int[BUCKETS];
+
+        synchronized void add(long at, long amount) {
+            if (origin == Long.MIN_VALUE) {
+                origin = at;
+            }
+            // A late bid from before the first one still belongs on the chart; clamp it to the first bucket
+            long offset = Math.max(0, at - origin);
+            while (offset / width >= BUCKETS) {
+                halve();
+            }
+            int bucket = (int) (offset / width);
+            if (count[bucket] == 0) {
+                open[bucket] = amount;
+                high[bucket] = amount;
+                low[bucket] = amount;
+            } else {
+                high[bucket] = Math.max(high[bucket], amount);
+                low[bucket] = Math.min(low[bucket], amount);
+            }
+            close[bucket] = amount;
+            count[bucket]++;
+            used = Math.max(used, bucket + 1);
+        }
+
+        // Merges buckets 2i and 2i+1 into i and doubles the width
+        private void halve() {
+            for (int i = 0; i < BUCKETS / 2; i++) {
+                merge(i, 2 * i, 2 * i + 1);
+            }
+            Arrays.fill(count, BUCKETS / 2, BUCKETS, 0);
+            width *= 2;
+            used = (used + 1) / 2;
+        }
+
+        private void merge(int into, int first, int second) {
+            long o = count[first] > 0 ? open[first] : open[second];
+            long h = Math.max(count[first] > 0 ? high[first] : Long.MIN_VALUE, count[second] > 0 ? high[second] : Long.MIN_VALUE);
+            long l = Math.min(count[first] > 0 ? low[first] : Long.MAX_VALUE, count[second] > 0 ? low[second] : Long.MAX_VALUE);
+            long c = count[second] > 0 ? close[second] : close[first];
+            int n = count[first] + count[second];
+            open[into] = o;
+            high[into] = h;
+            low[into] = l;
+            close[into] = c;
+            count[into] = n;
+        }
+
+        // Groups the used buckets into at most n points; empty groups are left out
+        synchronized List<PricePointDTO> downsample(int n) {
+            List<PricePointDTO> points = new ArrayList<>(Math.min(n, used));
+            if (used == 0) {
+                return points;
+            }
+            int perPoint = (used + n - 1) / n;
+            for (int from = 0; from < used; from += perPoint) {
+                int to = Math.min(from + perPoint, used);
+                int first = -1;
+                long h = Long.MIN_VALUE;
+                long l = Long.MAX_VALUE;
+                long c = 0;
+                int bids = 0;
+                for (int i = from; i < to; i++) {
+                    if (count[i] == 0) {
+                        continue;
+                    }
+                    if (first < 0) {
+                        first = i;
+                    }
+                    h = Math.max(h, high[i]);
+                    l = Math.min(l, low[i]);
+                    c = close[i];
+                    bids += count[i];
+                }
+                if (first >= 0) {
+                    points.add(PricePointDTO.builder()
+                            .start(fromMillis(origin + from * width))
+                            .end(fromMillis(origin + to * width))
+                            .open(Money.toMajor(open[first]))
+                            .high(Money.toMajor(h))
+                            .low(Money.toMajor(l))
+                            .close(Money.toMajor(c))
+                            .bids(bids)
+                            .build());
+                }
+            }
+            return points;
+        }
+    }
+}
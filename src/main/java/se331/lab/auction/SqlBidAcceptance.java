@@ -0,0 +1,133 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import se331.lab.Bid;
+import se331.lab.repository.AuctionItemRepository;
+import se331.lab.repository.BidRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bid acceptance for several app instances sharing one MySQL. The database row is the only
+ * authority: a bid is accepted by a single conditional UPDATE on auction_item, and its Bid row is
+ * inserted in the same transaction. The local bid book is only a cache that is never ahead of the
+ * database, so a bid it already considers too low is turned away without a round trip.
+ */
+@Component
+@RequiredArgsConstructor
+@Profile("cluster")
+public class SqlBidAcceptance implements BidAcceptance {
+    final AuctionItemRepository auctionItemRepository;
+    final BidRepository bidRepository;
+    final BidBook bidBook;
+    final TransactionTemplate transactionTemplate;
+    final MeterRegistry meterRegistry;
+
+    @Value("${application.bids.sql.max-attempts:5}")
+    int maxAttempts;
+
+    Timer acceptTimer;
+    Counter accepted;
+    Counter rejectedTooLow;
+    Counter rejectedClosed;
+    Counter rejectedLocally;
+    Counter lostRaces;
+    Counter retries;
+    Counter retriesExhausted;
+
+    @PostConstruct
+    public void registerMetrics() {
+        acceptTimer = Timer.builder("bids.sql.accept").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        accepted = meterRegistry.counter("bids.sql.accepted");
+        rejectedTooLow = meterRegistry.counter("bids.sql.rejected", "reason", "too_low");
+        rejectedClosed = meterRegistry.counter("bids.sql.rejected", "reason", "closed");
+        rejectedLocally = meterRegistry.counter("bids.sql.rejected", "reason", "local_cache");
+        // Passed the local check but another bidder (on any node) got there first
+        lostRaces = meterRegistry.counter("bids.sql.lost_races");
+        retries = meterRegistry.counter("bids.sql.retries");
+        retriesExhausted = meterRegistry.counter("bids.sql.retries_exhausted");
+    }
+
+    @Override
+    public BidResult accept(Long itemId, long amountMinor, String bidder, LocalDateTime at) {
+        BidSnapshot cached = bidBook.peek(itemId);
+        if (cached != null && !cached.isClosedAt(at) && !cached.accepts(amountMinor)) {
+            rejectedLocally.increment();
+            return BidResult.rejected(BidResult.Status.TOO_LOW, cached);
+        }
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(status -> acceptOnce(itemId, amountMinor, bidder, at, cached != null));
+                } catch (TransientDataAccessException e) {
+                    // Lock wait timeouts and deadlocks under heavy contention on the same row
+                    if (attempt >= maxAttempts) {
+                        retriesExhausted.increment();
+                        throw e;
+                    }
+                    retries.increment();
+                    backoff(attempt);
+                }
+            }
+        } finally {
+            acceptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    BidResult acceptOnce(Long itemId, long amountMinor, String bidder, LocalDateTime at, boolean passedLocalCheck) {
+        if (auctionItemRepository.acceptBid(itemId, amountMinor, at) == 1) {
+            bidRepository.save(Bid.builder()
+                    .amountMinor(amountMinor)
+                    .bidder(bidder)
+                    .datetime(at)
+                    .item(auctionItemRepository.getReferenceById(itemId))
+                    .build());
+            AuctionItemRepository.BidSeed row = auctionItemRepository.findBidSeedById(itemId).orElseThrow();
+            BidSnapshot snapshot = new BidSnapshot(row.getStartingPriceMinor() == null ? 0 : row.getStartingPriceMinor(),
+                    amountMinor, row.getBidCount(), bidder, at, row.getEndsAt(), false);
+            accepted.increment();
+            bidBook.observe(itemId, snapshot);
+            return BidResult.accepted(snapshot);
+        }
+        // The UPDATE matched nothing: find out whether the item is missing, closed or simply outbid
+        BidSnapshot current = bidBook.loadSeed(itemId);
+        if (current == null) {
+            return BidResult.notFound();
+        }
+        bidBook.observe(itemId, current);
+        if (current.isClosedAt(at)) {
+            rejectedClosed.increment();
+            return BidResult.rejected(BidResult.Status.CLOSED, current);
+        }
+        rejectedTooLow.increment();
+        if (passedLocalCheck) {
+            lostRaces.increment();
+        }
+        return BidResult.rejected(BidResult.Status.TOO_LOW, current);
+    }
+
+    @Override
+    public boolean persistsBids() {
+        return true;
+    }
+
+    static void backoff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package se331.lab.auction;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of token buckets in one AtomicLongArray; keys are hashed onto them, so memory
+ * stays the same however many distinct keys show up and two keys only share a bucket on a
+ * collision. Each slot packs the time of its last take (milliseconds since construction, upper
+ * 40 bits) with its token count in 1/1024ths of a token (lower 24 bits), so taking a token is a
+ * single CAS and refilling needs no background thread.
+ */
+public class TokenBuckets {
+    static final int TOKEN_BITS = 24;
+    static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    static final long ONE = 1024;
+
+    final AtomicLongArray slots;
+    final int mask;
+    final long capacity;
+    // In 1/1024ths of a token, so fractional rates such as 0.5/s still refill
+    final long refillPerSecond;
+    final long origin = System.currentTimeMillis();
+
+    public TokenBuckets(int stripes, double tokensPerSecond, int burst) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        if (burst < 1 || burst * ONE > TOKEN_MASK) {
+            throw new IllegalArgumentException("burst must be between 1 and " + TOKEN_MASK / ONE);
+        }
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.capacity = burst * ONE;
+        this.refillPerSecond = Math.max(1, Math.round(tokensPerSecond * ONE));
+        // Every bucket starts full
+        for (int i = 0; i < size; i++) {
+            slots.set(i, capacity);
+        }
+    }
+
+    /**
+     * Takes one token from the bucket {@code hash} falls into. Returns 0 when it was taken,
+     * otherwise how many milliseconds until one will be available.
+     */
+    public long tryTake(int hash) {
+        int slot = spread(hash) & mask;
+        long now = System.currentTimeMillis() - origin;
+        while (true) {
+            long current = slots.get(slot);
+            long last = current >>> TOKEN_BITS;
+            long elapsed = Math.max(0, now - last);
+            long tokens = Math.min(capacity, (current & TOKEN_MASK) + refill(elapsed));
+            if (tokens < ONE) {
+                return Math.max(1, ((ONE - tokens) * 1000 + refillPerSecond - 1) / refillPerSecond);
+            }
+            long next = (Math.max(now, last) << TOKEN_BITS) | (tokens - ONE);
+            if (slots.compareAndSet(slot, current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Like tryTake, without taking anything: 0 when a token is available now
+    public long waitMillis(int hash) {
+        long current = slots.get(spread(hash) & mask);
+        long elapsed = Math.max(0, System.currentTimeMillis() - origin - (current >>> TOKEN_BITS));
+        long tokens = Math.min(capacity, (current & TOKEN_MASK) + refill(elapsed));
+        return tokens >= ONE ? 0 : Math.max(1, ((ONE - tokens) * 1000 + refillPerSecond - 1) / refillPerSecond);
+    }
+
+    // Returns a token taken by tryTake, for a caller that turned out not to need it
+    public void giveBack(int hash) {
+        int slot = spread(hash) & mask;
+        while (true) {
+            long current = slots.get(slot);
+            long tokens = Math.min(capacity, (current & TOKEN_MASK) + ONE);
+            long next = (current & ~TOKEN_MASK) | tokens;
+            if (slots.compareAndSet(slot, current, next)) {
+                return;
+            }
+        }
+    }
+
+    private long refill(long elapsedMillis) {
+        // Anything past a full bucket's worth of time is capped anyway; this also keeps the product from overflowing
+        long fullAfter = capacity * 1000 / refillPerSecond + 1;
+        return Math.min(elapsedMillis, fullAfter) * refillPerSecond / 1000;
+    }
+
+    static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
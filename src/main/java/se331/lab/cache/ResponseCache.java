@@ -0,0 +1,322 @@
+package se331.lab.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serialized bodies of the public GET responses, filled and served by ResponseCacheFilter.
+ * Bounded by the total size of what it holds rather than by entry count; when it runs over, the
+ * least recently used entries go first.
+ *
+ * <p>An entry is fresh for ttl-ms and may then be served stale for stale-ms more. The first
+ * request to find it stale goes through to the controller and refreshes it, while everyone else
+ * keeps getting the stale copy.
+ *
+ * <p>Entries are grouped by what they show: one item of a resource ("/auction-items/7",
+ * "/auction-items/7/bids") or the listings of a resource (pages, search, stats, calendar).
+ * Creating or editing something drops its item group and the listings. A bid only drops its
+ * item's group, through {@link #invalidateItemLater}, which coalesces the invalidations and
+ * applies them off the request thread. Listings pick up new prices within ttl-ms, and so do
+ * changes made outside the controllers or on another instance in the cluster profile.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCache {
+    final MeterRegistry meterRegistry;
+
+    @Value("${application.response-cache.max-bytes:16777216}")
+    long maxBytes;
+    @Value("${application.response-cache.max-entry-bytes:1048576}")
+    int maxEntryBytes;
+    @Value("${application.response-cache.ttl-ms:30000}")
+    long ttlMillis;
+    @Value("${application.response-cache.stale-ms:300000}")
+    long staleMillis;
+    @Value("${application.response-cache.invalidate-ms:20}")
+    long invalidateMillis;
+
+    final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<String, Set<String>> keysByGroup = new ConcurrentHashMap<>();
+    final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    // Ticks on every invalidation; a loader takes its value before the controller runs
+    final AtomicLong clock = new AtomicLong();
+    // Clock value at each group's last invalidation; a response loaded across one is not kept
+    final ConcurrentHashMap<String, Long> generations = new ConcurrentHashMap<>();
+    // Responses loaded from before this tick are not kept; raised as old generations are pruned
+    volatile long floor;
+    // Clock value at the previous prune; only touched on the invalidator thread
+    long prunedAt;
+    // Item groups waiting for the invalidator thread; a burst of bids on one item is one entry
+    final Set<String> pendingGroups = ConcurrentHashMap.newKeySet();
+    final AtomicLong bytes = new AtomicLong();
+    final ReentrantLock evictionLock = new ReentrantLock();
+    ScheduledExecutorService invalidator;
+
+    Counter hits;
+    Counter staleHits;
+    Counter misses;
+    Counter evictions;
+    Counter invalidations;
+
+    @lombok.Value
+    public static class Key {
+        String key;
+        String resource;
+        // null for listings of the resource
+        String id;
+
+        String group() {
+            return ResponseCache.group(resource, id);
+        }
+    }
+
+    @Getter
+    public static class Entry {
+        final String key;
+        final String group;
+        final String contentType;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+        final long freshUntil;
+        final long staleUntil;
+        final long size;
+        volatile long lastUsed;
+
+        Entry(String key, String group, String contentType, Map<String, List<String>> headers, byte[] body,
+              long freshUntil, long staleUntil) {
+            this.key = key;
+            this.group = group;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+            long size = body.length + key.length() * 2L + 64;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                size += header.getKey().length() * 2L;
+                for (String value : header.getValue()) {
+                    size += value.length() * 2L;
+                }
+            }
+            this.size = size;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    public enum Result { HIT, STALE, MISS }
+
+    @PostConstruct
+    public void start() {
+        hits = meterRegistry.counter("http.response.cache", "result", "hit");
+        staleHits = meterRegistry.counter("http.response.cache", "result", "stale");
+        misses = meterRegistry.counter("http.response.cache", "result", "miss");
+        evictions = meterRegistry.counter("http.response.cache.evictions");
+        invalidations = meterRegistry.counter("http.response.cache.invalidations");
+        meterRegistry.gauge("http.response.cache.bytes", bytes);
+        meterRegistry.gauge("http.response.cache.entries", entries, Map::size);
+
+        invalidator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "response-cache-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        invalidator.scheduleWithFixedDelay(this::drainPending, invalidateMillis, invalidateMillis, TimeUnit.MILLISECONDS);
+        invalidator.scheduleWithFixedDelay(this::pruneGenerations, ttlMillis, ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        invalidator.shutdownNow();
+    }
+
+    /**
+     * The entry to serve, or null if the caller should load the response itself: on a miss, and
+     * for the one caller that gets to refresh a stale entry (which must call {@link #release}).
+     */
+    public Entry get(Key key) {
+        Entry entry = entries.get(key.getKey());
+        long now = System.currentTimeMillis();
+        if (entry != null && now >= entry.getStaleUntil()) {
+            remove(entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastUsed = System.nanoTime();
+        if (now < entry.getFreshUntil()) {
+            hits.increment();
+            return entry;
+        }
+        if (refreshing.add(key.getKey())) {
+            misses.increment();
+            return null;
+        }
+        staleHits.increment();
+        return entry;
+    }
+
+    public Result resultOf(Entry entry) {
+        return System.currentTimeMillis() < entry.getFreshUntil() ? Result.HIT : Result.STALE;
+    }
+
+    // Taken before the controller runs; put() drops the response if its group changed since
+    public long generation(Key key) {
+        return clock.get();
+    }
+
+    public void put(Key key, long generation, String contentType, Map<String, List<String>> headers, byte[] body) {
+        if (body.length > maxEntryBytes || invalidatedSince(key, generation)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key.getKey(), key.group(), contentType, headers, body, now + ttlMillis, now + ttlMillis + staleMillis);
+        // Added inside compute, so remove() cannot drop the set between creating it and adding to it
+        keysByGroup.compute(entry.getGroup(), (group, keys) -> {
+            Set<String> grouped = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            grouped.add(entry.getKey());
+            return grouped;
+        });
+        Entry previous = entries.put(entry.getKey(), entry);
+        if (previous != null) {
+            bytes.addAndGet(-previous.getSize());
+        }
+        bytes.addAndGet(entry.getSize());
+        // An invalidation that ran between the check above and the put has to win
+        if (invalidatedSince(key, generation)) {
+            remove(entry);
+            return;
+        }
+        if (bytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    private boolean invalidatedSince(Key key, long generation) {
+        return generation < floor || generations.getOrDefault(key.group(), 0L) > generation;
+    }
+
+    public void release(Key key) {
+        refreshing.remove(key.getKey());
+    }
+
+    /** Drops the entries of one item of the resource and all of its listings. */
+    public void invalidate(String resource, Object id) {
+        if (id != null) {
+            invalidateGroup(group(resource, id.toString()));
+        }
+        invalidateGroup(group(resource, null));
+    }
+
+    /** Drops every entry of the resource. */
+    public void invalidateAll(String resource) {
+        for (String group : keysByGroup.keySet()) {
+            if (group.equals(resource) || group.startsWith(resource + "/")) {
+                invalidateGroup(group);
+            }
+        }
+        invalidateGroup(group(resource, null));
+    }
+
+    /**
+     * Drops the entries of one item, leaving the listings to expire, within invalidate-ms and off
+     * the calling thread. For the bid path, where it is called on every accepted bid.
+     */
+    public void invalidateItemLater(String resource, Object id) {
+        pendingGroups.add(group(resource, id.toString()));
+    }
+
+    void drainPending() {
+        for (String group : pendingGroups) {
+            pendingGroups.remove(group);
+            invalidateGroup(group);
+        }
+    }
+
+    /**
+     * Forgets the generations of groups invalidated before the previous prune, at least ttl-ms ago,
+     * so the map holds only recent invalidations. Raising the floor to that point keeps the check
+     * in put(): only a response that took longer than ttl-ms to load is no longer cached.
+     */
+    void pruneGenerations() {
+        long cutoff = prunedAt;
+        prunedAt = clock.get();
+        floor = cutoff;
+        generations.values().removeIf(generation -> generation <= cutoff);
+    }
+
+    private void invalidateGroup(String group) {
+        generations.merge(group, clock.incrementAndGet(), Math::max);
+        invalidations.increment();
+        Set<String> keys = keysByGroup.remove(group);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.getGroup().equals(group)) {
+                remove(entry);
+            }
+        }
+    }
+
+    // Oldest first down to 90% of the budget, so a put just over the limit does not evict every time
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // lastUsed keeps moving under concurrent reads, so sort on a copy of it
+            List<Map.Entry<Long, Entry>> byAge = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                byAge.add(Map.entry(entry.lastUsed, entry));
+            }
+            byAge.sort(Map.Entry.comparingByKey());
+            long target = maxBytes * 9 / 10;
+            for (Map.Entry<Long, Entry> aged : byAge) {
+                if (bytes.get() <= target) {
+                    break;
+                }
+                if (remove(aged.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        if (!entries.remove(entry.getKey(), entry)) {
+            return false;
+        }
+        bytes.addAndGet(-entry.getSize());
+        keysByGroup.computeIfPresent(entry.getGroup(), (group, keys) -> {
+            keys.remove(entry.getKey());
+            return keys.isEmpty() ? null : keys;
+        });
+        return true;
+    }
+
+    static String group(String resource, String id) {
+        return id == null ? resource : resource + "/" + id;
+    }
+}
@@ -0,0 +1,180 @@
+package se331.lab.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Serves the public GET endpoints for events, organizations, organizers and auction items from
+ * ResponseCache, skipping the controller, the database and Jackson. It runs after Spring
+ * Security. Only 200 responses are stored, and the server-sent event streams are never cached.
+ * The X-Cache response header says whether a response was a HIT, a STALE copy or a MISS.
+ *
+ * <p>It also answers If-None-Match for these paths, from the cache or from a fresh response.
+ * The detail endpoints set a version ETag themselves and check it before loading anything.
+ * Everything else (pages, search, calendar) gets an ETag hashed from the body, which still
+ * saves sending the body.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCacheFilter extends OncePerRequestFilter {
+    // Singular aliases of the mappings share entries with the plural paths
+    static final Map<String, String> RESOURCES = Map.of(
+            "events", "events", "event", "events",
+            "organizations", "organizations", "organization", "organizations",
+            "organizers", "organizers",
+            "auction-items", "auction-items");
+    // Set per request by the CORS filter and the container; everything else is replayed as stored
+    static final Set<String> PER_REQUEST_HEADERS = Set.of(
+            "vary", "set-cookie", "content-length", "transfer-encoding", "date",
+            "access-control-allow-origin", "access-control-allow-credentials", "x-cache");
+
+    final ResponseCache responseCache;
+
+    @Value("${application.response-cache.enabled:true}")
+    boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"GET".equalsIgnoreCase(request.getMethod()) || keyOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        ResponseCache.Key key = keyOf(request);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        ResponseCache.Entry cached = enabled ? responseCache.get(key) : null;
+        if (cached != null) {
+            write(cached, responseCache.resultOf(cached), ifNoneMatch, response);
+            return;
+        }
+        long generation = responseCache.generation(key);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        wrapper.setHeader("X-Cache", ResponseCache.Result.MISS.name());
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK) {
+                byte[] body = wrapper.getContentAsByteArray();
+                String etag = wrapper.getHeader(HttpHeaders.ETAG);
+                if (etag == null) {
+                    etag = "\"0" + DigestUtils.md5DigestAsHex(body) + "\"";
+                    wrapper.setHeader(HttpHeaders.ETAG, etag);
+                }
+                if (enabled) {
+                    responseCache.put(key, generation, wrapper.getContentType(), headersOf(wrapper), body);
+                }
+                if (matches(ifNoneMatch, etag)) {
+                    wrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    wrapper.resetBuffer();
+                }
+            }
+        } finally {
+            if (enabled) {
+                responseCache.release(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static void write(ResponseCache.Entry entry, ResponseCache.Result result, String ifNoneMatch,
+                              HttpServletResponse response) throws IOException {
+        entry.getHeaders().forEach((name, values) -> {
+            response.setHeader(name, values.get(0));
+            for (int i = 1; i < values.size(); i++) {
+                response.addHeader(name, values.get(i));
+            }
+        });
+        response.setHeader("X-Cache", result.name());
+        if (matches(ifNoneMatch, response.getHeader(HttpHeaders.ETAG))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (entry.getContentType() != null) {
+            response.setContentType(entry.getContentType());
+        }
+        response.setContentLength(entry.getBody().length);
+        response.getOutputStream().write(entry.getBody());
+    }
+
+    // Weak comparison, as If-None-Match calls for: W/"x" matches "x"
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || (candidate.startsWith("W/") ? candidate.substring(2) : candidate).equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, List<String>> headersOf(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (!PER_REQUEST_HEADERS.contains(lower) && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+                headers.putIfAbsent(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * /api/v1/event/7?b=2&a=1 and /events/7?a=1&b=2 are the same entry: the prefix and the
+     * singular alias are dropped and parameters sorted by name. Null for paths not cached.
+     */
+    static ResponseCache.Key keyOf(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (path.startsWith("/api/v1/")) {
+            path = path.substring("/api/v1".length());
+        }
+        String[] segments = path.replaceAll("^/+|/+$", "").split("/+");
+        String resource = RESOURCES.get(segments[0]);
+        if (resource == null || segments[segments.length - 1].equals("stream")) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder("/").append(resource);
+        for (int i = 1; i < segments.length; i++) {
+            key.append('/').append(segments[i]);
+        }
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        // /auction-items/7/bids belongs to item 7; /events/calendar is a listing
+        String id = segments.length > 1 && segments[1].chars().allMatch(Character::isDigit) ? segments[1] : null;
+        return new ResponseCache.Key(key.toString(), resource, id);
+    }
+}
@@ -3,6 +3,8 @@ package se331.lab.config;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.lang.NonNull;
 import jakarta.transaction.Transactional;
@@ -21,6 +23,7 @@ import se331.lab.repository.BidRepository;
 import se331.lab.security.user.User;
 import se331.lab.security.user.Role;
 import se331.lab.security.user.UserRepository;
+import se331.lab.util.Money;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -28,6 +31,8 @@ import java.time.LocalDateTime;
 
 @Component
 @RequiredArgsConstructor
+// Seed before the other ready listeners (search index, reconciler, closing wheel) read the tables
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class InitApp implements ApplicationListener<ApplicationReadyEvent> {
     final EventRepository eventRepository;
     final OrganizerRepository organizerRepository;
@@ -188,22 +193,22 @@ public class InitApp implements ApplicationListener<ApplicationReadyEvent> {
             AuctionItem item = AuctionItem.builder()
                     .description(data[0])
                     .type(data[1])
-                    .startingPrice(Double.parseDouble(data[2]))
+                    .startingPriceMinor(Money.toMinor(Double.parseDouble(data[2])))
                     .build();
             
             // Create three bids with different amounts and bidders
             Bid b1 = Bid.builder()
-                    .amount(Double.parseDouble(data[3]))
+                    .amountMinor(Money.toMinor(Double.parseDouble(data[3])))
                     .bidder(bidders[i % bidders.length])
                     .datetime(LocalDateTime.now().minusDays(3))
                     .build();
             Bid b2 = Bid.builder()
-                    .amount(Double.parseDouble(data[4]))
+                    .amountMinor(Money.toMinor(Double.parseDouble(data[4])))
                     .bidder(bidders[(i + 1) % bidders.length])
                     .datetime(LocalDateTime.now().minusDays(2))
                     .build();
             Bid b3 = Bid.builder()
-                    .amount(Double.parseDouble(data[5]))
+                    .amountMinor(Money.toMinor(Double.parseDouble(data[5])))
                     .bidder(bidders[(i + 2) % bidders.length])
                     .datetime(LocalDateTime.now().minusDays(1))
                     .build();
@@ -211,10 +216,17 @@ public class InitApp implements ApplicationListener<ApplicationReadyEvent> {
             item.addBid(b1);
             item.addBid(b2);
             item.addBid(b3);
+            item.setCurrentPriceMinor(b3.getAmountMinor());
+            item.setBidCount(3L);
+            item.setLastBidAt(b3.getDatetime());
 
             // Set successful bid for first 5 items (meets Lab 9 requirement: at least 3 items with successful bids)
             if (i < 5) {
                 item.setSuccessfulBid(b3); // Highest bid wins
+                item.setEndsAt(LocalDateTime.now().minusHours(12));
+                item.setClosedAt(item.getEndsAt());
+            } else {
+                item.setEndsAt(LocalDateTime.now().plusDays(i - 4)); // Remaining items are still open
             }
 
             AuctionItem saved = auctionItemRepository.save(item);
@@ -0,0 +1,38 @@
+package se331.lab.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sets the @Version column of rows created before it existed. ddl-auto adds it as null, which
+ * Hibernate cannot increment and which would leave those rows without an ETag. Runs before
+ * InitApp and the startup loaders touch any of these tables.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class VersionColumnsBackfill {
+    static final String[] TABLES = {"event", "organizer", "organization", "auction_item"};
+
+    final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        for (String table : TABLES) {
+            try {
+                int updated = jdbcTemplate.update("update " + table + " set version = 0 where version is null");
+                if (updated > 0) {
+                    log.info("Backfilled {}.version for {} rows", table, updated);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not backfill {}.version: {}", table, e.getMessage());
+            }
+        }
+    }
+}
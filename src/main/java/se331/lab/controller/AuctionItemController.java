@@ -3,24 +3,54 @@ package se331.lab.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import se331.lab.AuctionItem;
+import se331.lab.AuctionItemRequest;
+import se331.lab.Bid;
+import se331.lab.BidRequest;
+import se331.lab.BidResultDTO;
+import se331.lab.PricePointDTO;
+import se331.lab.auction.AuctionItemCatalog;
+import se331.lab.auction.BidEventHub;
+import se331.lab.auction.BidResult;
+import se331.lab.auction.BidSnapshot;
+import se331.lab.auction.BidThrottle;
+import se331.lab.cache.ResponseCache;
 import se331.lab.service.AuctionItemService;
+import se331.lab.service.IdempotencyService;
+import se331.lab.util.LabMapper;
+import se331.lab.util.Money;
+
+import java.security.Principal;
+import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class AuctionItemController {
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     final AuctionItemService auctionItemService;
+    final BidEventHub bidEventHub;
+    final IdempotencyService idempotencyService;
+    final BidThrottle bidThrottle;
+    final ResponseCache responseCache;
 
     @GetMapping({"auction-items"})
     @ResponseBody
@@ -29,46 +59,199 @@ public class AuctionItemController {
             @RequestParam(value = "_page", required = false) Integer page,
             @RequestParam(value = "description", required = false) String description,
             @RequestParam(value = "type", required = false) String type,
-            @RequestParam(value = "maxSuccessful", required = false) Double maxSuccessful
+            @RequestParam(value = "maxSuccessful", required = false) Double maxSuccessful,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "_sort", required = false) String sort
     ) {
         perPage = perPage == null ? 5 : perPage;
         page = page == null ? 1 : page;
+        PageRequest pageRequest = PageRequest.of(page - 1, perPage, toSort(sort));
         Page<AuctionItem> output;
-        if (description != null && type != null) {
+        if (description == null && (status != null || (maxSuccessful != null && type != null))) {
+            // Combined filters are answered from the in-memory catalog
+            output = auctionItemService.getItemsFiltered(type, maxSuccessful, toStatus(status), pageRequest);
+        } else if (description != null && type != null) {
             // Search by both description and type (OR condition)
-            output = auctionItemService.getItemsByDescriptionOrType(description, type, PageRequest.of(page - 1, perPage));
+            output = auctionItemService.getItemsByDescriptionOrType(description, type, pageRequest);
         } else if (description != null) {
             // Search by description only
-            output = auctionItemService.getItemsByDescription(description, PageRequest.of(page - 1, perPage));
+            output = auctionItemService.getItemsByDescription(description, pageRequest);
         } else if (type != null) {
             // Search by type only (reuse the OR method with same value)
-            output = auctionItemService.getItemsByDescriptionOrType(type, type, PageRequest.of(page - 1, perPage));
+            output = auctionItemService.getItemsByDescriptionOrType(type, type, pageRequest);
         } else if (maxSuccessful != null) {
-            output = auctionItemService.getItemsBySuccessfulBidLessThan(maxSuccessful, PageRequest.of(page - 1, perPage));
+            output = auctionItemService.getItemsBySuccessfulBidLessThan(maxSuccessful, pageRequest);
+        } else if ("endingSoon".equals(sort)) {
+            output = auctionItemService.getItemsEndingSoon(pageRequest);
         } else {
-            output = auctionItemService.getItems(perPage, page);
+            output = auctionItemService.getItems(pageRequest);
         }
         HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.set("x-total-count", String.valueOf(output.getTotalElements()));
         responseHeader.set("X-Total-Count", String.valueOf(output.getTotalElements()));
         responseHeader.setAccessControlExposeHeaders(java.util.List.of("X-Total-Count", "x-total-count"));
-        return new ResponseEntity<>(output.getContent(), responseHeader, HttpStatus.OK);
+        return new ResponseEntity<>(auctionItemService.getItemSummaries(output.getContent()), responseHeader, HttpStatus.OK);
+    }
+
+    @GetMapping({"auction-items/stats"})
+    @ResponseBody
+    public ResponseEntity<?> getStats(@RequestParam(value = "hours", required = false) Integer hours) {
+        return ResponseEntity.ok(auctionItemService.getStats(hours == null ? 24 : hours));
     }
 
     @GetMapping({"auction-items/{id}"})
     @ResponseBody
-    public ResponseEntity<?> getItem(@PathVariable("id") Long id) {
+    public ResponseEntity<?> getItem(@PathVariable("id") Long id, WebRequest webRequest) {
+        String tag = auctionItemService.getItemTag(id);
+        if (tag != null && webRequest.checkNotModified(tag)) {
+            return null;
+        }
         AuctionItem item = auctionItemService.getItem(id);
-        if (item != null) return ResponseEntity.ok(item);
+        if (item != null) return ResponseEntity.ok(auctionItemService.getItemSummaries(List.of(item)).get(0));
         throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The given id is not found");
     }
 
-    @org.springframework.web.bind.annotation.PostMapping("/auction-items")
+    @GetMapping(value = {"auction-items/{id}/stream"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @ResponseBody
-    public ResponseEntity<?> addItem(@org.springframework.web.bind.annotation.RequestBody AuctionItem item) {
-        AuctionItem savedItem = auctionItemService.save(item);
-        return ResponseEntity.ok(savedItem);
+    public SseEmitter streamItem(@PathVariable("id") Long id) {
+        BidSnapshot current = auctionItemService.getBidSnapshot(id);
+        if (current == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The given id is not found");
+        }
+        SseEmitter emitter = bidEventHub.subscribe(id, current);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many watchers, try again later");
+        }
+        return emitter;
     }
-}
 
+    @GetMapping({"auction-items/{id}/price-series"})
+    @ResponseBody
+    public ResponseEntity<?> getPriceSeries(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "buckets", required = false) Integer buckets
+    ) {
+        buckets = buckets == null ? 50 : buckets;
+        if (buckets < 1 || buckets > 500) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "buckets must be between 1 and 500");
+        }
+        List<PricePointDTO> series = auctionItemService.getPriceSeries(id, buckets);
+        if (series == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The given id is not found");
+        }
+        return ResponseEntity.ok(series);
+    }
 
+    @GetMapping({"auction-items/{id}/bids"})
+    @ResponseBody
+    public ResponseEntity<?> getBids(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "_limit", required = false) Integer perPage,
+            @RequestParam(value = "_page", required = false) Integer page
+    ) {
+        perPage = perPage == null ? 10 : perPage;
+        page = page == null ? 1 : page;
+        Page<Bid> output = auctionItemService.getBids(id, PageRequest.of(page - 1, perPage,
+                Sort.by(Sort.Order.desc("datetime"), Sort.Order.desc("id"))));
+        if (output == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The given id is not found");
+        }
+        HttpHeaders responseHeader = new HttpHeaders();
+        responseHeader.set("x-total-count", String.valueOf(output.getTotalElements()));
+        responseHeader.set("X-Total-Count", String.valueOf(output.getTotalElements()));
+        responseHeader.setAccessControlExposeHeaders(List.of("X-Total-Count", "x-total-count"));
+        return new ResponseEntity<>(LabMapper.INSTANCE.getBidDto(output.getContent()), responseHeader, HttpStatus.OK);
+    }
+
+    @PostMapping("/auction-items")
+    @ResponseBody
+    public ResponseEntity<?> addItem(@RequestBody AuctionItemRequest request,
+                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotencyService.execute("auction-items", idempotencyKey, request, () -> {
+            AuctionItem savedItem = auctionItemService.save(AuctionItem.builder()
+                    .description(request.getDescription())
+                    .type(request.getType())
+                    .startingPriceMinor(request.getStartingPrice() == null ? null : toMinor(request.getStartingPrice()))
+                    .endsAt(request.getEndsAt())
+                    .build());
+            responseCache.invalidate("auction-items", savedItem.getId());
+            return ResponseEntity.ok(auctionItemService.getItemSummaries(List.of(savedItem)).get(0));
+        });
+    }
+
+    @PostMapping("/auction-items/{id}/bids")
+    @ResponseBody
+    public ResponseEntity<?> placeBid(@PathVariable("id") Long id, @RequestBody BidRequest request,
+                                      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                      Principal principal) {
+        if (request.getAmount() == null || request.getAmount() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "amount must be positive");
+        }
+        // Bids are placed as the logged-in user, whatever the body says
+        request.setBidder(principal.getName());
+        if (request.getBidder().length() > Bid.BIDDER_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bidder must be at most " + Bid.BIDDER_LENGTH + " characters");
+        }
+        // A retried bid gets the original accept/reject answer instead of being bid again, and is not throttled for it
+        return idempotencyService.executeLocally("auction-items/" + id + "/bids", idempotencyKey, request, () -> {
+            bidThrottle.acquire(principal.getName(), id);
+            BidResult result = auctionItemService.placeBid(id, toMinor(request.getAmount()), request.getBidder());
+            if (result.getStatus() == BidResult.Status.NOT_FOUND) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The given id is not found");
+            }
+            if (result.isAccepted()) {
+                // The item, its bids and price series; listings and stats catch up within the cache TTL
+                responseCache.invalidateItemLater("auction-items", id);
+            }
+            HttpStatus status = result.isAccepted() ? HttpStatus.OK : HttpStatus.CONFLICT;
+            return new ResponseEntity<>(toBidResultDto(id, result), status);
+        });
+    }
+
+    // price / -price sort on the indexed current_price_minor column, recent on last_bid_at, endingSoon on (closed_at, ends_at)
+    private static Sort toSort(String sort) {
+        if (sort == null) {
+            return Sort.unsorted();
+        }
+        return switch (sort) {
+            case "price" -> Sort.by(Sort.Order.asc("currentPriceMinor"), Sort.Order.asc("id"));
+            case "-price" -> Sort.by(Sort.Order.desc("currentPriceMinor"), Sort.Order.asc("id"));
+            case "recent" -> Sort.by(Sort.Order.desc("lastBidAt"), Sort.Order.asc("id"));
+            case "endingSoon" -> Sort.by(Sort.Order.asc("endsAt"), Sort.Order.asc("id"));
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported _sort: " + sort);
+        };
+    }
+
+    private static AuctionItemCatalog.Status toStatus(String status) {
+        if (status == null) {
+            return null;
+        }
+        return switch (status) {
+            case "open" -> AuctionItemCatalog.Status.OPEN;
+            case "closed" -> AuctionItemCatalog.Status.CLOSED;
+            case "sold" -> AuctionItemCatalog.Status.SOLD;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported status: " + status);
+        };
+    }
+
+    private static long toMinor(Double amount) {
+        try {
+            return Money.toMinor(amount);
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported amount: " + amount);
+        }
+    }
+
+    private BidResultDTO toBidResultDto(Long itemId, BidResult result) {
+        BidSnapshot snapshot = result.getSnapshot();
+        return BidResultDTO.builder()
+                .itemId(itemId)
+                .accepted(result.isAccepted())
+                .status(result.getStatus().name())
+                .currentPrice(Money.toMajor(snapshot.getCurrentPriceMinor()))
+                .bidCount(snapshot.getBidCount())
+                .highBidder(snapshot.getLastBidder())
+                .lastBidAt(snapshot.getLastBidAt())
+                .build();
+    }
+}
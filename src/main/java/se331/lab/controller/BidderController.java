@@ -0,0 +1,50 @@
+package se331.lab.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import se331.lab.BidderBidDTO;
+import se331.lab.service.BidderService;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BidderController {
+    final BidderService bidderService;
+
+    @GetMapping("/bidders/leaderboard")
+    public ResponseEntity<?> getLeaderboard(@RequestParam(value = "_limit", required = false) Integer limit) {
+        limit = limit == null ? 10 : limit;
+        if (limit < 1 || limit > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "_limit must be between 1 and 100");
+        }
+        return ResponseEntity.ok(bidderService.getLeaderboard(limit));
+    }
+
+    @GetMapping("/bidders/{name}/bids")
+    public ResponseEntity<?> getBids(
+            @PathVariable("name") String name,
+            @RequestParam(value = "_limit", required = false) Integer perPage,
+            @RequestParam(value = "_page", required = false) Integer page
+    ) {
+        perPage = perPage == null ? 10 : perPage;
+        page = page == null ? 1 : page;
+        List<BidderBidDTO> bids = bidderService.getBids(name);
+        int from = Math.min((page - 1) * perPage, bids.size());
+        int to = Math.min(from + perPage, bids.size());
+        HttpHeaders responseHeader = new HttpHeaders();
+        responseHeader.set("x-total-count", String.valueOf(bids.size()));
+        responseHeader.set("X-Total-Count", String.valueOf(bids.size()));
+        responseHeader.setAccessControlExposeHeaders(List.of("X-Total-Count", "x-total-count"));
+        return new ResponseEntity<>(bids.subList(from, to), responseHeader, HttpStatus.OK);
+    }
+}
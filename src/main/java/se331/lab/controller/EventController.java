@@ -13,42 +13,101 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import se331.lab.CalendarDayDTO;
+import se331.lab.EventDTO;
+import se331.lab.EventListDTO;
+import se331.lab.cache.ResponseCache;
+import se331.lab.dao.EventFacets;
 import se331.lab.entity.Event;
 import se331.lab.util.LabMapper;
 import se331.lab.service.EventService;
 import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
 @Controller
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class EventController {
+    // Open start of a ?from= / ?to= range; fits a MySQL DATETIME. An open end is passed on as null
+    static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+
     final EventService eventService;
+    final ResponseCache responseCache;
 
     @GetMapping({"event", "events"})
     @ResponseBody
     public ResponseEntity<?> getEventLists(
             @RequestParam(value = "_limit", required = false) Integer perPage,
             @RequestParam(value = "_page", required = false) Integer page,
-            @RequestParam(value = "title", required = false) String title) {
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "facets", required = false) List<String> facets) {
         perPage = perPage == null ? 3 : perPage;
         page = page == null ? 1 : page;
         Page<Event> pageOutput;
-        if (title == null) {
-            pageOutput = eventService.getEvents(perPage, page);
-        } else {
+        if (title != null) {
             pageOutput = eventService.getEvents(title, PageRequest.of(page - 1, perPage));
+        } else if (from != null || to != null) {
+            LocalDateTime start = from == null ? EARLIEST : toDateTime(from, false);
+            LocalDateTime end = to == null ? null : toDateTime(to, true);
+            pageOutput = eventService.getEvents(start, end, PageRequest.of(page - 1, perPage));
+        } else {
+            pageOutput = eventService.getEvents(perPage, page);
         }
         HttpHeaders responseHeader = new HttpHeaders();
         responseHeader.set("x-total-count", String.valueOf(pageOutput.getTotalElements()));
         responseHeader.set("X-Total-Count", String.valueOf(pageOutput.getTotalElements()));
         responseHeader.setAccessControlExposeHeaders(java.util.List.of("X-Total-Count", "x-total-count"));
-        return new ResponseEntity<>(LabMapper.INSTANCE.getEventDto(pageOutput.getContent()), responseHeader, HttpStatus.OK);
+        List<EventDTO> items = LabMapper.INSTANCE.getEventDto(pageOutput.getContent());
+        if (facets == null) {
+            return new ResponseEntity<>(items, responseHeader, HttpStatus.OK);
+        }
+        for (String facet : facets) {
+            if (!EventFacets.FIELDS.contains(facet)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported facet: " + facet);
+            }
+        }
+        EventListDTO body = EventListDTO.builder()
+                .items(items)
+                .facets(eventService.getFacets(facets))
+                .build();
+        return new ResponseEntity<>(body, responseHeader, HttpStatus.OK);
+    }
+
+    @GetMapping({"event/calendar", "events/calendar"})
+    @ResponseBody
+    public ResponseEntity<?> getCalendar(@RequestParam(value = "month") String month) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "month must look like 2025-09");
+        }
+        List<CalendarDayDTO> days = new ArrayList<>();
+        eventService.getCalendar(yearMonth).forEach((day, events) -> days.add(CalendarDayDTO.builder()
+                .date(day)
+                .events(LabMapper.INSTANCE.getEventDto(events))
+                .build()));
+        return ResponseEntity.ok(days);
     }
 
     @GetMapping({"event/{id}", "events/{id}"})
     @ResponseBody
-    public ResponseEntity<?> getEvent(@PathVariable("id") Long id) {
+    public ResponseEntity<?> getEvent(@PathVariable("id") Long id, WebRequest webRequest) {
+        // An unchanged event (and organizer) is answered with 304 from the versions alone
+        String tag = eventService.getEventTag(id);
+        if (tag != null && webRequest.checkNotModified(tag)) {
+            return null;
+        }
         Event output = eventService.getEvent(id);
         if (output != null) {
             return ResponseEntity.ok(LabMapper.INSTANCE.getEventDto(output));
@@ -61,7 +120,22 @@ public class EventController {
     @ResponseBody
     public ResponseEntity<?> addEvent(@RequestBody Event event){
         Event output = eventService.save(event);
+        responseCache.invalidate("events", output.getId());
+        // Organizers are listed with their own events
+        responseCache.invalidateAll("organizers");
         return ResponseEntity.ok(LabMapper.INSTANCE.getEventDto(output));
     }
+
+    // 2025-09-03 or 2025-09-03T18:00; a bare date as the end of a range includes that whole day
+    private static LocalDateTime toDateTime(String value, boolean end) {
+        try {
+            if (value.length() == 10) {
+                LocalDate date = LocalDate.parse(value);
+                return end ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported date: " + value);
+        }
+    }
 }
-            
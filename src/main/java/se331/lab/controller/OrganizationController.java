@@ -14,7 +14,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import se331.lab.cache.ResponseCache;
 import se331.lab.entity.Organization;
 import se331.lab.service.OrganizationService;
 
@@ -23,6 +26,7 @@ import se331.lab.service.OrganizationService;
 @CrossOrigin(origins = "*")
 public class OrganizationController {
     final OrganizationService organizationService;
+    final ResponseCache responseCache;
 
     @GetMapping({"organization", "organizations"})
     @ResponseBody
@@ -39,7 +43,11 @@ public class OrganizationController {
 
     @GetMapping({"organization/{id}", "organizations/{id}"})
     @ResponseBody
-    public ResponseEntity<?> getOrganization(@PathVariable("id") Long id) {
+    public ResponseEntity<?> getOrganization(@PathVariable("id") Long id, WebRequest webRequest) {
+        Long version = organizationService.getOrganizationVersion(id);
+        if (version != null && webRequest.checkNotModified(String.valueOf(version))) {
+            return null;
+        }
         Organization output = organizationService.getOrganization(id);
         if (output != null) {
             return ResponseEntity.ok(output);
@@ -52,6 +60,7 @@ public class OrganizationController {
     @ResponseBody
     public ResponseEntity<?> addOrganization(@RequestBody Organization organization){
         Organization output = organizationService.save(organization);
+        responseCache.invalidate("organizations", output.getId());
         return ResponseEntity.ok(output);
     }
 
@@ -61,7 +70,15 @@ public class OrganizationController {
         Organization existingOrganization = organizationService.getOrganization(id);
         if (existingOrganization != null) {
             organization.setId(id);
-            Organization output = organizationService.save(organization);
+            // The body carries no version; the update applies to the row as just read
+            organization.setVersion(existingOrganization.getVersion());
+            Organization output;
+            try {
+                output = organizationService.save(organization);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "The organization was changed by another request");
+            }
+            responseCache.invalidate("organizations", id);
             return ResponseEntity.ok(output);
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The given id is not found");
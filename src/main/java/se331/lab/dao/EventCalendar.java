@@ -0,0 +1,122 @@
+package se331.lab.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import se331.lab.entity.Event;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Event ids bucketed by every day they take place on, for GET /events/calendar. A month view is
+ * one sub-map walk here plus one load-by-id, instead of a range scan per day. Built from the
+ * event table once the dates have been backfilled, and kept current by EventDaoDbImpl.save.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@Profile("db")
+public class EventCalendar implements ApplicationListener<ApplicationReadyEvent> {
+    // A mis-typed year should not put one event on thousands of days
+    static final int MAX_SPAN_DAYS = 366;
+
+    final JdbcTemplate jdbcTemplate;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    final TreeMap<LocalDate, TreeSet<Long>> days = new TreeMap<>();
+    final Map<Long, LocalDate[]> spans = new HashMap<>();
+    volatile boolean ready;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        jdbcTemplate.query("select id, starts_at, ends_at from event where starts_at is not null",
+                rs -> {
+                    put(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(),
+                            rs.getTimestamp(3) == null ? null : rs.getTimestamp(3).toLocalDateTime());
+                });
+        ready = true;
+        log.info("Event calendar loaded with {} events over {} days", spans.size(), days.size());
+    }
+
+    public void index(Event event) {
+        put(event.getId(), event.getStartsAt(), event.getEndsAt());
+    }
+
+    /** Ids of the events on each day of the month that has any, in date order; null before the load. */
+    public Map<LocalDate, List<Long>> month(YearMonth month) {
+        if (!ready) {
+            return null;
+        }
+        Map<LocalDate, List<Long>> result = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            days.subMap(month.atDay(1), true, month.atEndOfMonth(), true)
+                    .forEach((day, ids) -> result.put(day, new ArrayList<>(ids)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Same bucketing for events already loaded (fallback before the load, and the in-memory DAO)
+    public static Map<LocalDate, List<Event>> bucket(List<Event> events, YearMonth month) {
+        Map<LocalDate, List<Event>> calendar = new TreeMap<>();
+        for (Event event : events) {
+            if (event.getStartsAt() == null) {
+                continue;
+            }
+            LocalDate first = event.getStartsAt().toLocalDate();
+            LocalDate last = event.getEndsAt() == null ? first : event.getEndsAt().toLocalDate();
+            LocalDate from = first.isBefore(month.atDay(1)) ? month.atDay(1) : first;
+            LocalDate to = last.isAfter(month.atEndOfMonth()) ? month.atEndOfMonth() : last;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                calendar.computeIfAbsent(day, d -> new ArrayList<>()).add(event);
+            }
+        }
+        return calendar;
+    }
+
+    void put(Long id, LocalDateTime startsAt, LocalDateTime endsAt) {
+        lock.writeLock().lock();
+        try {
+            LocalDate[] previous = spans.remove(id);
+            if (previous != null) {
+                for (LocalDate day = previous[0]; !day.isAfter(previous[1]); day = day.plusDays(1)) {
+                    TreeSet<Long> ids = days.get(day);
+                    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                        days.remove(day);
+                    }
+                }
+            }
+            if (startsAt == null) {
+                return;
+            }
+            LocalDate first = startsAt.toLocalDate();
+            LocalDate last = endsAt == null || endsAt.isBefore(startsAt) ? first : endsAt.toLocalDate();
+            if (last.isAfter(first.plusDays(MAX_SPAN_DAYS))) {
+                last = first.plusDays(MAX_SPAN_DAYS);
+            }
+            spans.put(id, new LocalDate[]{first, last});
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                days.computeIfAbsent(day, d -> new TreeSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -3,17 +3,34 @@ package se331.lab.dao;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import se331.lab.entity.Event;
 import se331.lab.repository.EventRepository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 @Repository
 @RequiredArgsConstructor
 @Profile("db")
 public class EventDaoDbImpl implements EventDao {
     final EventRepository eventRepository;
+    final EventSearchIndex eventSearchIndex;
+    final EventCalendar eventCalendar;
+    final EventFacets eventFacets;
 
     @Override
     public Integer getEventSize() {
@@ -29,7 +46,54 @@ public class EventDaoDbImpl implements EventDao {
 
     @Override
     public Page<Event> getEvents(String title, Pageable page) {
-        return eventRepository.findByTitleIgnoreCaseContainingOrDescriptionIgnoreCaseContainingOrOrganizerNameIgnoreCaseContaining(title, title, title, page);
+        long[] ranked = page.getSort().isSorted() ? null : eventSearchIndex.search(title);
+        if (ranked == null) {
+            return eventRepository.findByTitleIgnoreCaseContainingOrDescriptionIgnoreCaseContainingOrOrganizerNameIgnoreCaseContaining(title, title, title, page);
+        }
+        // The index gives the order and the total; only the requested page is read from the table
+        int from = (int) Math.min(page.isPaged() ? page.getOffset() : 0, ranked.length);
+        int to = page.isPaged() ? Math.min(from + page.getPageSize(), ranked.length) : ranked.length;
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(ranked[i]);
+        }
+        Map<Long, Event> byId = new HashMap<>();
+        eventRepository.findAllById(ids).forEach(event -> byId.put(event.getId(), event));
+        List<Event> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Event event = byId.get(id);
+            if (event != null) {
+                content.add(event);
+            }
+        }
+        return new PageImpl<>(content, page, ranked.length);
+    }
+
+    @Override
+    public Page<Event> getEvents(LocalDateTime from, LocalDateTime to, Pageable page) {
+        if (to == null) {
+            return eventRepository.findByEndsAtGreaterThanOrderByStartsAtAscIdAsc(from, page);
+        }
+        return eventRepository.findByStartsAtLessThanAndEndsAtGreaterThanOrderByStartsAtAscIdAsc(to, from, page);
+    }
+
+    @Override
+    public Map<LocalDate, List<Event>> getCalendar(YearMonth month) {
+        Map<LocalDate, List<Long>> days = eventCalendar.month(month);
+        if (days == null) {
+            return EventCalendar.bucket(getEvents(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), Pageable.unpaged()).getContent(), month);
+        }
+        List<Long> ids = days.values().stream().flatMap(List::stream).distinct().toList();
+        Map<Long, Event> byId = new HashMap<>();
+        eventRepository.findAllById(ids).forEach(event -> byId.put(event.getId(), event));
+        Map<LocalDate, List<Event>> calendar = new LinkedHashMap<>();
+        days.forEach((day, dayIds) -> calendar.put(day, dayIds.stream().map(byId::get).filter(Objects::nonNull).toList()));
+        return calendar;
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getFacets(Collection<String> fields) {
+        return eventFacets.snapshot(fields);
     }
 
     @Override
@@ -38,9 +102,36 @@ public class EventDaoDbImpl implements EventDao {
     }
 
     @Override
-    public Event save(Event event) {
-        return eventRepository.save(event);
+    public String getEventTag(Long id) {
+        EventRepository.EventVersion version = eventRepository.findVersionById(id).orElse(null);
+        if (version == null || version.getVersion() == null) {
+            return null;
+        }
+        return version.getVersion() + (version.getOrganizerVersion() == null ? "" : "." + version.getOrganizerVersion());
     }
-}
 
+    @Override
+    public Event save(Event event) {
+        Event saved = eventRepository.save(event);
+        // The in-memory views must never show an event whose transaction rolled back
+        afterCommit(() -> {
+            eventSearchIndex.index(saved);
+            eventCalendar.index(saved);
+            eventFacets.index(saved);
+        });
+        return saved;
+    }
 
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
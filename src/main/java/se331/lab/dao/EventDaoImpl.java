@@ -9,9 +9,21 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 import se331.lab.entity.Event;
 import se331.lab.entity.Organizer;
+import se331.lab.util.EventDateParser;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 @Profile("manual")
@@ -88,6 +100,7 @@ public class EventDaoImpl implements EventDao {
                 .petAllowed(false)
                 .organizer(Organizer.builder().id(6L).name("Brody Kill").build())
                 .build());
+        eventList.forEach(event -> EventDateParser.apply(event, Year.now().getValue()));
     }
 
     @Override
@@ -125,11 +138,47 @@ public class EventDaoImpl implements EventDao {
         return new PageImpl<>(slice, page, filtered.size());
     }
 
+    @Override
+    public Page<Event> getEvents(LocalDateTime from, LocalDateTime to, Pageable page) {
+        List<Event> filtered = eventList.stream()
+                .filter(e -> e.getStartsAt() != null && (to == null || e.getStartsAt().isBefore(to)) && e.getEndsAt().isAfter(from))
+                .sorted(Comparator.comparing(Event::getStartsAt).thenComparing(Event::getId))
+                .toList();
+        if (page.isUnpaged()) {
+            return new PageImpl<>(filtered, page, filtered.size());
+        }
+        int firstIndex = (int) Math.min(page.getOffset(), filtered.size());
+        int toIndex = Math.min(firstIndex + page.getPageSize(), filtered.size());
+        return new PageImpl<>(filtered.subList(firstIndex, toIndex), page, filtered.size());
+    }
+
+    @Override
+    public Map<LocalDate, List<Event>> getCalendar(YearMonth month) {
+        return EventCalendar.bucket(getEvents(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), Pageable.unpaged()).getContent(), month);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getFacets(Collection<String> fields) {
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        for (String field : fields) {
+            Function<Event, Object> value = EventFacets.CATEGORY.equals(field) ? Event::getCategory : Event::getPetAllowed;
+            facets.put(field, eventList.stream().collect(Collectors.groupingBy(
+                    event -> EventFacets.valueOf(value.apply(event)), TreeMap::new, Collectors.counting())));
+        }
+        return facets;
+    }
+
     @Override
     public Event getEvent(Long id) {
         return eventList.stream().filter(event -> event.getId().equals(id)).findFirst().orElse(null);
     }
 
+    @Override
+    public String getEventTag(Long id) {
+        // Nothing here is versioned; callers skip the conditional check
+        return null;
+    }
+
     @Override
     public Event save(Event event) {
         if (eventList.isEmpty()) {
@@ -0,0 +1,59 @@
+package se331.lab.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import se331.lab.util.EventDateParser;
+
+import java.sql.Timestamp;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses Event.date / Event.time into starts_at / ends_at for rows that do not have them yet
+ * (everything saved before the columns existed, and rows inserted by hand). Runs after InitApp
+ * and before EventCalendar loads. Rows whose strings cannot be read are left null and logged.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@Profile("db")
+@Order(0)
+public class EventDateBackfill implements ApplicationListener<ApplicationReadyEvent> {
+    final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        backfill();
+    }
+
+    public void backfill() {
+        // Dates written without a year ("3rd Sept") are read as this year
+        int year = Year.now().getValue();
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> unreadable = new ArrayList<>();
+        jdbcTemplate.query("select id, date, time from event where starts_at is null",
+                rs -> {
+                    EventDateParser.Range range = EventDateParser.parse(rs.getString(2), rs.getString(3), year);
+                    if (range == null) {
+                        unreadable.add(rs.getLong(1));
+                    } else {
+                        updates.add(new Object[]{Timestamp.valueOf(range.getStartsAt()), Timestamp.valueOf(range.getEndsAt()), rs.getLong(1)});
+                    }
+                });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("update event set starts_at = ?, ends_at = ?, version = coalesce(version, 0) + 1 where id = ?", updates);
+            log.info("Backfilled starts_at/ends_at for {} events", updates.size());
+        }
+        if (!unreadable.isEmpty()) {
+            log.warn("Could not read the date/time of events {}", unreadable);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package se331.lab.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se331.lab.entity.Event;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Event counts per category and per petAllowed value for the filter chips on the browse page.
+ * Counted in memory: adjusted by EventDaoDbImpl.save and recounted from the table on startup
+ * and on the reconcile cron, which also picks up rows changed outside the application.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@Profile("db")
+public class EventFacets implements ApplicationListener<ApplicationReadyEvent> {
+    public static final String CATEGORY = "category";
+    public static final String PET_ALLOWED = "petAllowed";
+    public static final List<String> FIELDS = List.of(CATEGORY, PET_ALLOWED);
+
+    final JdbcTemplate jdbcTemplate;
+
+    // Facet values per event, so a re-saved event moves between values instead of being counted twice
+    final Map<Long, String[]> valuesById = new HashMap<>();
+    final Map<String, Map<String, Long>> counts = new HashMap<>();
+    boolean loaded;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${application.events.facets.reconcile-cron:0 */10 * * * *}")
+    public synchronized void reconcile() {
+        Map<String, Map<String, Long>> before = snapshot(FIELDS);
+        valuesById.clear();
+        counts.clear();
+        jdbcTemplate.query("select id, category, pet_allowed from event",
+                rs -> {
+                    boolean petAllowed = rs.getBoolean(3);
+                    put(rs.getLong(1), rs.getString(2), rs.wasNull() ? null : petAllowed);
+                });
+        if (loaded && !before.equals(snapshot(FIELDS))) {
+            log.info("Event facet counts corrected by reconcile");
+        }
+        loaded = true;
+    }
+
+    public synchronized void index(Event event) {
+        put(event.getId(), event.getCategory(), event.getPetAllowed());
+    }
+
+    /** Counts per value for each of the requested facet fields, values in order. */
+    public synchronized Map<String, Map<String, Long>> snapshot(Collection<String> fields) {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (String field : fields) {
+            result.put(field, new TreeMap<>(counts.getOrDefault(field, Map.of())));
+        }
+        return result;
+    }
+
+    private void put(Long id, String category, Boolean petAllowed) {
+        String[] values = {valueOf(category), valueOf(petAllowed)};
+        String[] previous = valuesById.put(id, values);
+        for (int i = 0; i < FIELDS.size(); i++) {
+            Map<String, Long> field = counts.computeIfAbsent(FIELDS.get(i), f -> new HashMap<>());
+            if (previous != null) {
+                field.computeIfPresent(previous[i], (value, count) -> count > 1 ? count - 1 : null);
+            }
+            field.merge(values[i], 1L, Long::sum);
+        }
+    }
+
+    // JSON object keys cannot be null; a missing value is counted under ""
+    public static String valueOf(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
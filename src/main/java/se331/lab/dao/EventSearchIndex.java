@@ -0,0 +1,239 @@
+package se331.lab.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import se331.lab.entity.Event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over Event.title, description and organizer name for the ?title= search.
+ * Documents are ranked with BM25, the three fields weighted into one term frequency (title
+ * counts most). Every query word must match a word in the event, either exactly or as a prefix
+ * ("adopt" finds "adoption"); prefix matches score a little lower than exact ones.
+ *
+ * <p>Built from the event table when the application is ready and kept current by
+ * EventDaoDbImpl.save. Until the build has finished, and for queries without any word
+ * characters, search returns null and the caller falls back to the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@Profile("db")
+public class EventSearchIndex implements ApplicationListener<ApplicationReadyEvent> {
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    static final float TITLE_WEIGHT = 3f;
+    static final float ORGANIZER_WEIGHT = 2f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+    static final float PREFIX_WEIGHT = 0.7f;
+
+    final JdbcTemplate jdbcTemplate;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Sorted so that every term with a given prefix is one sub-map
+    final NavigableMap<String, Postings> terms = new TreeMap<>();
+    final Map<Long, Doc> docs = new HashMap<>();
+    double totalLength;
+    volatile boolean ready;
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.query("select e.id, e.title, e.description, o.name from event e "
+                        + "left join organizer o on o.id = e.organizer_id order by e.id",
+                rs -> {
+                    put(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                });
+        ready = true;
+        log.info("Indexed {} events ({} terms) for search in {} ms", docs.size(), terms.size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(Event event) {
+        put(event.getId(), event.getTitle(), event.getDescription(),
+                event.getOrganizer() == null ? null : event.getOrganizer().getName());
+    }
+
+    /** Ids of the matching events, best first (ties by id), or null if the index cannot answer. */
+    public long[] search(String query) {
+        List<String> words = tokenize(query);
+        if (!ready || words.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = null;
+            for (String word : new LinkedHashSet<>(words)) {
+                Map<Long, Float> matches = scoreWord(word);
+                if (scores == null) {
+                    scores = matches;
+                } else {
+                    // Every word has to match: keep the intersection and add up the scores
+                    Map<Long, Float> next = new HashMap<>();
+                    for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                        Float score = matches.get(entry.getKey());
+                        if (score != null) {
+                            next.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = next;
+                }
+                if (scores.isEmpty()) {
+                    return new long[0];
+                }
+            }
+            List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Float>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            long[] ids = new long[ranked.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ranked.get(i).getKey();
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // BM25 of one query word per document, taking the best of its exact and prefix matches
+    private Map<Long, Float> scoreWord(String word) {
+        Map<Long, Float> scores = new HashMap<>();
+        float averageLength = docs.isEmpty() ? 1f : (float) (totalLength / docs.size());
+        int n = docs.size();
+        for (Map.Entry<String, Postings> entry : terms.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            Postings postings = entry.getValue();
+            float idf = (float) Math.log(1 + (n - postings.size + 0.5) / (postings.size + 0.5));
+            float weight = entry.getKey().length() == word.length() ? 1f : PREFIX_WEIGHT;
+            for (int i = 0; i < postings.size; i++) {
+                float tf = postings.tfs[i];
+                float length = docs.get(postings.ids[i]).length;
+                float score = weight * idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                scores.merge(postings.ids[i], score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    void put(Long id, String title, String description, String organizer) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = count(title, TITLE_WEIGHT, frequencies)
+                + count(description, DESCRIPTION_WEIGHT, frequencies)
+                + count(organizer, ORGANIZER_WEIGHT, frequencies);
+        Doc doc = new Doc(length, frequencies.keySet().toArray(new String[0]));
+        lock.writeLock().lock();
+        try {
+            unindex(id, docs.put(id, doc));
+            totalLength += length;
+            frequencies.forEach((term, tf) -> terms.computeIfAbsent(term, t -> new Postings()).add(id, tf));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(Long id, Doc previous) {
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length;
+        for (String term : previous.terms) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    private static float count(String text, float weight, Map<String, Float> frequencies) {
+        List<String> words = tokenize(text);
+        for (String word : words) {
+            frequencies.merge(word, weight, Float::sum);
+        }
+        return words.size() * weight;
+    }
+
+    // Lower-cased runs of letters and digits; everything else separates words
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && isWordChar(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // Combining marks count as letters so Thai vowel and tone marks do not split a word
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    static final class Doc {
+        final float length;
+        final String[] terms;
+
+        Doc(float length, String[] terms) {
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    // Ids kept sorted with their weighted term frequency alongside; ids only grow, so adds append
+    static final class Postings {
+        long[] ids = new long[4];
+        float[] tfs = new float[4];
+        int size;
+
+        void add(long id, float tf) {
+            int at = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                tfs[at] = tf;
+                return;
+            }
+            int insert = -at - 1;
+            if (size == ids.length) {
+                int capacity = size + (size >> 1) + 1;
+                ids = Arrays.copyOf(ids, capacity);
+                tfs = Arrays.copyOf(tfs, capacity);
+            }
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            System.arraycopy(tfs, insert, tfs, insert + 1, size - insert);
+            ids[insert] = id;
+            tfs[insert] = tf;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            System.arraycopy(tfs, at + 1, tfs, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -31,6 +31,11 @@ public class OrganizationDaoDbImpl implements OrganizationDao {
         return organizationRepository.findById(id).orElse(null);
     }
 
+    @Override
+    public Long getOrganizationVersion(Long id) {
+        return organizationRepository.findVersionById(id).orElse(null);
+    }
+
     @Override
     public Organization save(Organization organization) {
         return organizationRepository.save(organization);
@@ -1,23 +1,34 @@
 package se331.lab.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_event_starts_at", columnList = "starts_at, ends_at"),
+        @Index(name = "idx_event_ends_at", columnList = "ends_at")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Event {
@@ -25,17 +36,27 @@ public class Event {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @EqualsAndHashCode.Exclude
     Long id;
+    // Bumped by every JPA update; the ETag of the detail response, looked up without loading the row
+    @Version
+    @JsonIgnore
+    Long version;
     String title;
     String description;
     String location;
     String date;
     String time;
+    // Parsed from date/time by EventDateParser; the strings stay as entered for display
+    LocalDateTime startsAt;
+    LocalDateTime endsAt;
     Boolean petAllowed;
-    @ManyToOne
+    // Fetched by the entity graphs on EventRepository where it is needed, otherwise in batches
+    @ManyToOne(fetch = FetchType.LAZY)
     Organizer organizer;
     @ManyToMany(mappedBy = "eventHistory")
+    @BatchSize(size = 50)
     List<Participant> participants;
     String category;
     @ElementCollection
+    @BatchSize(size = 50)
     List<String> images;
 }
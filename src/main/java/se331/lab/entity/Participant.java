@@ -10,6 +10,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
@@ -26,5 +27,6 @@ public class Participant {
     String name;
     String telNo;
     @ManyToMany
+    @BatchSize(size = 50)
     List<Event> eventHistory;
 }
@@ -0,0 +1,7 @@
+package se331.lab.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import se331.lab.ArchivedAuctionItem;
+
+public interface ArchivedAuctionItemRepository extends JpaRepository<ArchivedAuctionItem, Long> {
+}
@@ -2,13 +2,101 @@ package se331.lab.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import se331.lab.AuctionItem;
+import se331.lab.Bid;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface AuctionItemRepository extends JpaRepository<AuctionItem, Long> {
+    @Override
+    @EntityGraph(attributePaths = "successfulBid")
+    Page<AuctionItem> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "successfulBid")
+    Optional<AuctionItem> findById(Long id);
+
+    // Hydrates a page of search hits in one query
+    @Override
+    @EntityGraph(attributePaths = "successfulBid")
+    List<AuctionItem> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(attributePaths = "successfulBid")
     Page<AuctionItem> findByDescriptionIgnoreCaseContaining(String description, Pageable pageable);
-    Page<AuctionItem> findBySuccessfulBid_AmountLessThan(Double amount, Pageable pageable);
+    @EntityGraph(attributePaths = "successfulBid")
+    Page<AuctionItem> findBySuccessfulBidIsNotNullAndCurrentPriceMinorLessThan(Long amountMinor, Pageable pageable);
+    @EntityGraph(attributePaths = "successfulBid")
     Page<AuctionItem> findByDescriptionIgnoreCaseContainingOrTypeIgnoreCaseContaining(String description, String type, Pageable pageable);
-}
 
+    // The catalog's filter in SQL, for explicit sorts and while the catalog is still loading; null parameters match anything
+    @EntityGraph(attributePaths = "successfulBid")
+    @Query("select i from AuctionItem i where (:type is null or lower(i.type) like lower(concat('%', :type, '%'))) "
+            + "and (:maxMinor is null or (i.successfulBid is not null and i.currentPriceMinor < :maxMinor)) "
+            + "and (:open = false or i.closedAt is null) "
+            + "and (:closed = false or i.closedAt is not null) "
+            + "and (:sold = false or i.successfulBid is not null)")
+    Page<AuctionItem> findFiltered(@Param("type") String type, @Param("maxMinor") Long maxSuccessfulMinor,
+                                   @Param("open") boolean open, @Param("closed") boolean closed,
+                                   @Param("sold") boolean sold, Pageable pageable);
+
+    // Scalar projection so seeding the bid book does not drag in the bid history
+    @Query("select i.id as id, i.startingPriceMinor as startingPriceMinor, i.currentPriceMinor as currentPriceMinor, "
+            + "i.bidCount as bidCount, i.lastBidAt as lastBidAt, i.endsAt as endsAt, i.closedAt as closedAt, "
+            + "sb.id as successfulBidId "
+            + "from AuctionItem i left join i.successfulBid sb where i.id = :id")
+    Optional<BidSeed> findBidSeedById(@Param("id") Long id);
+
+    interface BidSeed {
+        Long getId();
+        Long getStartingPriceMinor();
+        Long getCurrentPriceMinor();
+        Long getBidCount();
+        LocalDateTime getLastBidAt();
+        LocalDateTime getEndsAt();
+        LocalDateTime getClosedAt();
+        Long getSuccessfulBidId();
+    }
+
+    // Primary key probe for conditional GETs; everything the detail ETag is made of
+    @Query("select i.version as version, i.bidCount as bidCount, i.closedAt as closedAt from AuctionItem i where i.id = :id")
+    Optional<ItemVersion> findVersionById(@Param("id") Long id);
 
+    interface ItemVersion {
+        Long getVersion();
+        Long getBidCount();
+        LocalDateTime getClosedAt();
+    }
+
+    @EntityGraph(attributePaths = "successfulBid")
+    Page<AuctionItem> findByClosedAtIsNullAndEndsAtAfter(LocalDateTime now, Pageable pageable);
+
+    @Query("select i.id from AuctionItem i where i.closedAt < :cutoff order by i.id")
+    List<Long> findIdsClosedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Range scan on idx_auction_item_open_ends_at; used to (re)fill the closing timer wheel
+    List<AuctionEnd> findByClosedAtIsNullAndEndsAtLessThanEqual(LocalDateTime horizon);
+
+    interface AuctionEnd {
+        Long getId();
+        LocalDateTime getEndsAt();
+    }
+
+    // Compare-and-set on the row: matches only while the item is open and the amount beats the current price
+    @Modifying
+    @Query("update AuctionItem i set i.currentPriceMinor = :amount, i.bidCount = coalesce(i.bidCount, 0) + 1, i.lastBidAt = :at "
+            + "where i.id = :id and i.closedAt is null and (i.endsAt is null or i.endsAt > :at) "
+            + "and ((i.currentPriceMinor is null and coalesce(i.startingPriceMinor, 0) <= :amount) or i.currentPriceMinor < :amount)")
+    int acceptBid(@Param("id") Long id, @Param("amount") long amountMinor, @Param("at") LocalDateTime at);
+
+    @Modifying
+    @Query("update AuctionItem i set i.successfulBid = :winner, i.closedAt = :closedAt "
+            + "where i.id = :id and i.closedAt is null")
+    int close(@Param("id") Long id, @Param("winner") Bid winner, @Param("closedAt") LocalDateTime closedAt);
+}
@@ -1,9 +1,15 @@
 package se331.lab.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import se331.lab.Bid;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface BidRepository extends JpaRepository<Bid, Long> {
+    Optional<Bid> findFirstByItem_IdOrderByAmountMinorDescDatetimeAsc(Long itemId);
+    Page<Bid> findByItem_Id(Long itemId, Pageable pageable);
+    List<Bid> findByItem_IdOrderByIdAsc(Long itemId);
 }
-
-
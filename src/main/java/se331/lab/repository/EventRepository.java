@@ -2,16 +2,51 @@ package se331.lab.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import se331.lab.entity.Event;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Every EventDTO carries its organizer, so the event reads used by the controllers join it in.
+// Organizer.user is the inverse side of a one-to-one and Hibernate always loads it eagerly,
+// one select per organizer, unless it is joined here too.
+// Images are a collection and are left to batch fetching: joining them would page in memory.
 public interface EventRepository extends JpaRepository<Event, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"organizer", "organizer.user"})
+    Page<Event> findAll(Pageable pageable);
+    @Override
+    @EntityGraph(attributePaths = {"organizer", "organizer.user"})
+    List<Event> findAllById(Iterable<Long> ids);
+    @Override
+    @EntityGraph(attributePaths = {"organizer", "organizer.user", "images"})
+    Optional<Event> findById(Long id);
+    // Primary key probe for conditional GETs; the detail response includes the organizer, so its version counts too
+    @Query("select e.version as version, o.version as organizerVersion from Event e left join e.organizer o where e.id = :id")
+    Optional<EventVersion> findVersionById(@Param("id") Long id);
+
+    interface EventVersion {
+        Long getVersion();
+        Long getOrganizerVersion();
+    }
     Page<Event> findByTitle(String title, Pageable pageRequest);
     Page<Event> findByTitleContaining(String title, Pageable pageRequest);
     Page<Event> findByTitleContainingOrDescriptionContaining(String title, String description, Pageable pageRequest);
     Page<Event> findByTitleContainingAndDescriptionContaining(String title, String description, Pageable pageRequest);
     Page<Event> findByTitleContainingOrDescriptionContainingOrOrganizerNameContaining(String title, String description, String organizerName, Pageable pageRequest);
+    @EntityGraph(attributePaths = {"organizer", "organizer.user"})
     Page<Event> findByTitleIgnoreCaseContainingOrDescriptionIgnoreCaseContainingOrOrganizerNameIgnoreCaseContaining(String title, String description, String organizerName, Pageable pageRequest);
+    // Events overlapping [from, to); served by the (starts_at, ends_at) index
+    @EntityGraph(attributePaths = {"organizer", "organizer.user"})
+    Page<Event> findByStartsAtLessThanAndEndsAtGreaterThanOrderByStartsAtAscIdAsc(LocalDateTime to, LocalDateTime from, Pageable pageRequest);
+    // Events still running after from, with no upper bound; served by the ends_at index
+    @EntityGraph(attributePaths = {"organizer", "organizer.user"})
+    Page<Event> findByEndsAtGreaterThanOrderByStartsAtAscIdAsc(LocalDateTime from, Pageable pageRequest);
 }
 
 
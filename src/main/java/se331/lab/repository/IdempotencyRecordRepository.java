@@ -0,0 +1,37 @@
+package se331.lab.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import se331.lab.entity.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key")
+    int deleteByKey(@Param("key") String key);
+
+    // Keyset pages of the keys still within retention, for the service's key filter at startup
+    @Query("select r.id as id, r.idempotencyKey as idempotencyKey from IdempotencyRecord r "
+            + "where r.createdAt >= :since and r.id > :afterId order by r.id")
+    List<KeyRow> findKeysCreatedSince(@Param("since") LocalDateTime since, @Param("afterId") long afterId, Pageable pageable);
+
+    interface KeyRow {
+        Long getId();
+        String getIdempotencyKey();
+    }
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,7 +1,14 @@
 package se331.lab.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import se331.lab.entity.Organization;
 
+import java.util.Optional;
+
 public interface OrganizationRepository extends JpaRepository<Organization, Long> {
+    // Primary key probe for conditional GETs
+    @Query("select o.version from Organization o where o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
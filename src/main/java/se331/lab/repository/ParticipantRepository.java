@@ -2,9 +2,17 @@ package se331.lab.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import se331.lab.entity.Participant;
 
+import java.util.Optional;
+
 public interface ParticipantRepository extends JpaRepository<Participant, Long> {
     Page<Participant> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    // Pages leave eventHistory to batch fetching (a joined collection would page in memory);
+    // a single participant can take its events and their organizers in the same query
+    @Override
+    @EntityGraph(attributePaths = {"eventHistory", "eventHistory.organizer", "eventHistory.organizer.user"})
+    Optional<Participant> findById(Long id);
 }
@@ -76,7 +76,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         path.startsWith("/students") ||
         path.startsWith("/api/v1/students") ||
         path.startsWith("/organizers") ||
-        path.startsWith("/api/v1/organizers")
+        path.startsWith("/api/v1/organizers") ||
+        path.startsWith("/bidders") ||
+        path.startsWith("/api/v1/bidders")
     )) {
       if (org.slf4j.LoggerFactory.getLogger(JwtAuthenticationFilter.class).isDebugEnabled()) {
         org.slf4j.LoggerFactory.getLogger(JwtAuthenticationFilter.class)
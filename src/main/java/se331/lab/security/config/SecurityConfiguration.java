@@ -79,7 +79,11 @@ public class SecurityConfiguration {
                       "/organizers/**",
                       "/api/v1/organizers",
                       "/api/v1/organizers/*",
-                      "/api/v1/organizers/**"
+                      "/api/v1/organizers/**",
+                      "/bidders/*/bids",
+                      "/bidders/leaderboard",
+                      "/api/v1/bidders/*/bids",
+                      "/api/v1/bidders/leaderboard"
                   ).permitAll()
                   .requestMatchers("/actuator/**").permitAll()
                   .requestMatchers(org.springframework.http.HttpMethod.POST, "/uploadFile", "/uploadImage").permitAll()
@@ -115,7 +119,7 @@ public class SecurityConfiguration {
     config.setAllowedOriginPatterns(java.util.List.of("http://localhost:5173"));
     config.setAllowedMethods(java.util.List.of("GET","POST","PUT","DELETE","OPTIONS"));
     config.setAllowedHeaders(java.util.List.of("*"));
-    config.setExposedHeaders(java.util.List.of("x-total-count"));
+    config.setExposedHeaders(java.util.List.of("x-total-count", "Idempotent-Replayed", "Retry-After", "X-Cache"));
     config.setAllowCredentials(true);
     UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
     source.registerCorsConfiguration("/**", config);
@@ -3,14 +3,33 @@ package se331.lab.service;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import se331.lab.AuctionItem;
+import se331.lab.AuctionItemDTO;
+import se331.lab.AuctionStatsDTO;
+import se331.lab.Bid;
+import se331.lab.PricePointDTO;
+import se331.lab.auction.AuctionItemCatalog;
+import se331.lab.auction.BidResult;
+import se331.lab.auction.BidSnapshot;
+
+import java.util.List;
 
 public interface AuctionItemService {
     Page<AuctionItem> getItems(Integer pageSize, Integer page);
+    Page<AuctionItem> getItems(Pageable pageable);
+    Page<AuctionItem> getItemsEndingSoon(Pageable pageable);
     Page<AuctionItem> getItemsByDescription(String description, Pageable pageable);
     Page<AuctionItem> getItemsBySuccessfulBidLessThan(Double amount, Pageable pageable);
     Page<AuctionItem> getItemsByDescriptionOrType(String description, String type, Pageable pageable);
+    AuctionStatsDTO getStats(int hours);
+    List<PricePointDTO> getPriceSeries(Long itemId, int buckets);
+    Page<AuctionItem> getItemsFiltered(String type, Double maxSuccessful, AuctionItemCatalog.Status status, Pageable pageable);
     AuctionItem getItem(Long id);
+    String getItemTag(Long id);
     AuctionItem save(AuctionItem item);
+    BidResult placeBid(Long itemId, long amountMinor, String bidder);
+    Page<Bid> getBids(Long itemId, Pageable pageable);
+    BidSnapshot getBidSnapshot(Long itemId);
+    List<AuctionItemDTO> getItemSummaries(List<AuctionItem> items);
 }
 
 
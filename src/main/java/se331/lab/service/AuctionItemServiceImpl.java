@@ -2,46 +2,276 @@ package se331.lab.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import se331.lab.ArchivedAuctionItem;
 import se331.lab.AuctionItem;
+import se331.lab.AuctionItemDTO;
+import se331.lab.AuctionStatsDTO;
+import se331.lab.Bid;
+import se331.lab.PricePointDTO;
+import se331.lab.auction.AuctionArchiver;
+import se331.lab.auction.AuctionClosingScheduler;
+import se331.lab.auction.AuctionItemCatalog;
+import se331.lab.auction.AuctionItemSearchIndex;
+import se331.lab.auction.BidAcceptance;
+import se331.lab.auction.BidAnalytics;
+import se331.lab.auction.BidBook;
+import se331.lab.auction.BidEventHub;
+import se331.lab.auction.BidHistoryCodec;
+import se331.lab.auction.BidJournal;
+import se331.lab.auction.BidResult;
+import se331.lab.auction.BidSnapshot;
+import se331.lab.auction.BidWriteBehind;
+import se331.lab.auction.BidderIndex;
+import se331.lab.auction.ItemBidState;
+import se331.lab.auction.PendingBid;
+import se331.lab.auction.PriceSeriesStore;
+import se331.lab.repository.ArchivedAuctionItemRepository;
 import se331.lab.repository.AuctionItemRepository;
+import se331.lab.repository.BidRepository;
+import se331.lab.util.LabMapper;
+import se331.lab.util.Money;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class AuctionItemServiceImpl implements AuctionItemService {
     final AuctionItemRepository auctionItemRepository;
+    final BidRepository bidRepository;
+    final ArchivedAuctionItemRepository archivedAuctionItemRepository;
+    final BidBook bidBook;
+    final BidAcceptance bidAcceptance;
+    final BidWriteBehind bidWriteBehind;
+    final BidJournal bidJournal;
+    final BidEventHub bidEventHub;
+    final AuctionClosingScheduler auctionClosingScheduler;
+    final AuctionItemSearchIndex auctionItemSearchIndex;
+    final AuctionItemCatalog auctionItemCatalog;
+    final BidAnalytics bidAnalytics;
+    final PriceSeriesStore priceSeriesStore;
+    final BidderIndex bidderIndex;
 
     @Override
     public Page<AuctionItem> getItems(Integer pageSize, Integer page) {
         return auctionItemRepository.findAll(PageRequest.of(page - 1, pageSize));
     }
 
+    @Override
+    public Page<AuctionItem> getItems(Pageable pageable) {
+        return auctionItemRepository.findAll(pageable);
+    }
+
+    @Override
+    public Page<AuctionItem> getItemsEndingSoon(Pageable pageable) {
+        return auctionItemRepository.findByClosedAtIsNullAndEndsAtAfter(LocalDateTime.now(), pageable);
+    }
+
     @Override
     public Page<AuctionItem> getItemsByDescription(String description, Pageable pageable) {
-        return auctionItemRepository.findByDescriptionIgnoreCaseContaining(description, pageable);
+        Page<AuctionItem> indexed = searchIndexed(description, null, pageable);
+        return indexed != null ? indexed : auctionItemRepository.findByDescriptionIgnoreCaseContaining(description, pageable);
     }
 
     @Override
     public Page<AuctionItem> getItemsBySuccessfulBidLessThan(Double amount, Pageable pageable) {
-        return auctionItemRepository.findBySuccessfulBid_AmountLessThan(amount, pageable);
+        return getItemsFiltered(null, amount, null, pageable);
     }
 
     @Override
     public AuctionItem getItem(Long id) {
-        return auctionItemRepository.findById(id).orElse(null);
+        AuctionItem item = auctionItemRepository.findById(id).orElse(null);
+        if (item != null) {
+            return item;
+        }
+        // Closed auctions are moved to the archive by AuctionArchiver, but stay readable by id
+        ArchivedAuctionItem archived = archivedAuctionItemRepository.findById(id).orElse(null);
+        return archived == null ? null : AuctionArchiver.restore(archived, BidHistoryCodec.decode(archived.getBidHistory()));
+    }
+
+    // ETag of the item detail from one indexed probe; null for archived items, which are not probed
+    @Override
+    public String getItemTag(Long id) {
+        AuctionItemRepository.ItemVersion version = auctionItemRepository.findVersionById(id).orElse(null);
+        if (version == null || version.getVersion() == null) {
+            return null;
+        }
+        // Same rule as getItemSummaries: the book is ahead of bid_count until the write-behind catches up
+        long bidCount = version.getBidCount() == null ? 0 : version.getBidCount();
+        BidSnapshot live = bidBook.peek(id);
+        if (live != null && live.getBidCount() > bidCount) {
+            bidCount = live.getBidCount();
+        }
+        return version.getVersion() + "." + bidCount + (version.getClosedAt() == null ? "" : ".closed");
     }
 
     @Override
     public Page<AuctionItem> getItemsByDescriptionOrType(String description, String type, Pageable pageable) {
-        return auctionItemRepository.findByDescriptionIgnoreCaseContainingOrTypeIgnoreCaseContaining(description, type, pageable);
+        Page<AuctionItem> indexed = searchIndexed(description, type, pageable);
+        return indexed != null ? indexed
+                : auctionItemRepository.findByDescriptionIgnoreCaseContainingOrTypeIgnoreCaseContaining(description, type, pageable);
+    }
+
+    // Relevance-ranked page from the trigram index, or null when the index cannot answer (explicit sort, short term)
+    private Page<AuctionItem> searchIndexed(String description, String type, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return null;
+        }
+        long[] ranked = auctionItemSearchIndex.search(description, type);
+        if (ranked == null) {
+            return null;
+        }
+        int from = (int) Math.min(pageable.getOffset(), ranked.length);
+        int to = Math.min(from + pageable.getPageSize(), ranked.length);
+        return hydrate(Arrays.copyOfRange(ranked, from, to), pageable, ranked.length);
+    }
+
+    @Override
+    public Page<AuctionItem> getItemsFiltered(String type, Double maxSuccessful, AuctionItemCatalog.Status status, Pageable pageable) {
+        // The catalog only walks in id order, and is empty until it has loaded
+        if (!auctionItemCatalog.isReady() || pageable.getSort().isSorted()) {
+            return auctionItemRepository.findFiltered(type, Money.toMinor(maxSuccessful),
+                    status == AuctionItemCatalog.Status.OPEN, status == AuctionItemCatalog.Status.CLOSED,
+                    status == AuctionItemCatalog.Status.SOLD, pageable);
+        }
+        long[] total = new long[1];
+        long[] ids = auctionItemCatalog.filter(type, Money.toMinor(maxSuccessful), status, pageable.getOffset(), pageable.getPageSize(), total);
+        return hydrate(ids, pageable, total[0]);
+    }
+
+    // Loads one page of ids in a single query, keeping the given order
+    private Page<AuctionItem> hydrate(long[] pageIds, Pageable pageable, long total) {
+        List<Long> ids = new ArrayList<>(pageIds.length);
+        for (long id : pageIds) {
+            ids.add(id);
+        }
+        Map<Long, AuctionItem> byId = new HashMap<>();
+        for (AuctionItem item : auctionItemRepository.findAllById(ids)) {
+            byId.put(item.getId(), item);
+        }
+        List<AuctionItem> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            AuctionItem item = byId.get(id);
+            if (item != null) {
+                content.add(item);
+            }
+        }
+        return new PageImpl<>(content, pageable, total);
     }
 
     @Override
     public AuctionItem save(AuctionItem item) {
-        return auctionItemRepository.save(item);
+        AuctionItem saved = auctionItemRepository.save(item);
+        auctionItemSearchIndex.index(saved);
+        auctionItemCatalog.put(saved);
+        auctionClosingScheduler.schedule(saved.getId(), saved.getEndsAt());
+        return saved;
     }
-}
 
+    @Override
+    public BidResult placeBid(Long itemId, long amountMinor, String bidder) {
+        // Checked before the book accepts it: a bid the bid table cannot hold would never be persisted
+        if (amountMinor <= 0 || bidder == null || bidder.isBlank() || bidder.length() > Bid.BIDDER_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid amount must be positive and bidder at most "
+                    + Bid.BIDDER_LENGTH + " characters");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        BidResult result = bidAcceptance.accept(itemId, amountMinor, bidder, now);
+        if (result.isAccepted()) {
+            if (!bidAcceptance.persistsBids()) {
+                // Durable in the journal before we answer; MySQL catches up through the write-behind
+                PendingBid pending = bidJournal.append(itemId, amountMinor, bidder, now);
+                if (pending.getSequence() != null) {
+                    bidWriteBehind.enqueue(pending);
+                } else {
+                    writeThrough(pending);
+                }
+            }
+            auctionItemCatalog.updatePrice(itemId, amountMinor);
+            bidAnalytics.recordBid(itemId, amountMinor, now);
+            priceSeriesStore.record(itemId, amountMinor, now);
+            bidderIndex.onAccepted(itemId, bidder, amountMinor, now);
+            bidEventHub.publish(itemId, result.getSnapshot());
+        }
+        return result;
+    }
 
+    // Not journaled, so the bid only counts once it is in MySQL; if it never gets there the book forgets it
+    private void writeThrough(PendingBid pending) {
+        try {
+            bidWriteBehind.writeThrough(pending);
+        } catch (RuntimeException e) {
+            // Reloads from the database, after the bids accepted behind this one have been written
+            bidWriteBehind.flushNow();
+            bidBook.evict(pending.getItemId());
+            throw e;
+        }
+    }
+
+    @Override
+    public AuctionStatsDTO getStats(int hours) {
+        return bidAnalytics.stats(hours);
+    }
+
+    @Override
+    public List<PricePointDTO> getPriceSeries(Long itemId, int buckets) {
+        if (!auctionItemRepository.existsById(itemId)) {
+            List<Bid> archived = getArchivedBids(itemId);
+            return archived == null ? null : PriceSeriesStore.series(archived, buckets);
+        }
+        return priceSeriesStore.series(itemId, buckets);
+    }
+
+    @Override
+    public Page<Bid> getBids(Long itemId, Pageable pageable) {
+        if (!auctionItemRepository.existsById(itemId)) {
+            List<Bid> archived = getArchivedBids(itemId);
+            if (archived == null) {
+                return null;
+            }
+            // Newest first, same as the controller's sort for live items
+            archived.sort(Comparator.comparing(Bid::getDatetime).thenComparing(Bid::getId).reversed());
+            int from = (int) Math.min(pageable.getOffset(), archived.size());
+            int to = Math.min(from + pageable.getPageSize(), archived.size());
+            return new PageImpl<>(new ArrayList<>(archived.subList(from, to)), pageable, archived.size());
+        }
+        return bidRepository.findByItem_Id(itemId, pageable);
+    }
+
+    private List<Bid> getArchivedBids(Long itemId) {
+        return archivedAuctionItemRepository.findById(itemId)
+                .map(archived -> BidHistoryCodec.decode(archived.getBidHistory()))
+                .orElse(null);
+    }
+
+    @Override
+    public BidSnapshot getBidSnapshot(Long itemId) {
+        ItemBidState state = bidBook.state(itemId);
+        return state == null ? null : state.snapshot();
+    }
+
+    @Override
+    public List<AuctionItemDTO> getItemSummaries(List<AuctionItem> items) {
+        List<AuctionItemDTO> summaries = LabMapper.INSTANCE.getAuctionItemDto(items);
+        for (AuctionItemDTO summary : summaries) {
+            // The bid book is ahead of the denormalized columns by whatever is still in the write-behind queue
+            BidSnapshot live = bidBook.peek(summary.getId());
+            if (live != null && (summary.getBidCount() == null || live.getBidCount() >= summary.getBidCount())) {
+                summary.setCurrentPrice(Money.toMajor(live.getCurrentPriceMinor()));
+                summary.setBidCount(live.getBidCount());
+            }
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,11 @@
+package se331.lab.service;
+
+import se331.lab.BidderBidDTO;
+import se331.lab.LeaderboardEntryDTO;
+
+import java.util.List;
+
+public interface BidderService {
+    List<BidderBidDTO> getBids(String bidder);
+    List<LeaderboardEntryDTO> getLeaderboard(int limit);
+}
@@ -0,0 +1,25 @@
+package se331.lab.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import se331.lab.BidderBidDTO;
+import se331.lab.LeaderboardEntryDTO;
+import se331.lab.auction.BidderIndex;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class BidderServiceImpl implements BidderService {
+    final BidderIndex bidderIndex;
+
+    @Override
+    public List<BidderBidDTO> getBids(String bidder) {
+        return bidderIndex.bidsOf(bidder);
+    }
+
+    @Override
+    public List<LeaderboardEntryDTO> getLeaderboard(int limit) {
+        return bidderIndex.leaderboard(limit);
+    }
+}
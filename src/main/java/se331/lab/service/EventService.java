@@ -4,10 +4,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import se331.lab.entity.Event;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface EventService {
     Integer getEventSize();
     Page<Event> getEvents(Integer pageSize, Integer page);
     Page<Event> getEvents(String title, Pageable pageable);
+    Page<Event> getEvents(LocalDateTime from, LocalDateTime to, Pageable pageable);
+    Map<LocalDate, List<Event>> getCalendar(YearMonth month);
+    Map<String, Map<String, Long>> getFacets(Collection<String> fields);
     Event getEvent(Long id);
+    String getEventTag(Long id);
     Event save(Event event);
 }
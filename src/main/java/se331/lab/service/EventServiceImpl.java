@@ -9,6 +9,15 @@ import se331.lab.entity.Event;
 import se331.lab.entity.Organizer;
 import se331.lab.dao.EventDao;
 import se331.lab.dao.OrganizerDao;
+import se331.lab.util.EventDateParser;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -30,17 +39,38 @@ public class EventServiceImpl implements EventService{
         return eventDao.getEvents(title, pageable);
     }
 
+    @Override
+    public Page<Event> getEvents(LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        return eventDao.getEvents(from, to, pageable);
+    }
+
+    @Override
+    public Map<LocalDate, List<Event>> getCalendar(YearMonth month) {
+        return eventDao.getCalendar(month);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getFacets(Collection<String> fields) {
+        return eventDao.getFacets(fields);
+    }
+
     @Override
     public Event getEvent(Long id) {
         return eventDao.getEvent(id);
     }
 
+    @Override
+    public String getEventTag(Long id) {
+        return eventDao.getEventTag(id);
+    }
+
     @Override
     @Transactional
     public Event save(Event event) {
         Organizer organizer = organizerDao.findById(event.getOrganizer().getId()).orElse(null);
         event.setOrganizer(organizer);
         organizer.getOwnEvents().add(event);
+        EventDateParser.apply(event, Year.now().getValue());
         return eventDao.save(event);
     }
 }
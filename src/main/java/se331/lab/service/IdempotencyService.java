@@ -0,0 +1,13 @@
+package se331.lab.service;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    // Runs action at most once per (scope, key), across nodes and restarts; repeats get the first response back
+    ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action);
+
+    // Same, but the key is only claimed on this node and recorded after the fact; for actions whose repeats are harmless
+    ResponseEntity<?> executeLocally(String scope, String key, Object request, Supplier<ResponseEntity<?>> action);
+}
@@ -0,0 +1,428 @@
+package se331.lab.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import se331.lab.entity.IdempotencyRecord;
+import se331.lab.repository.IdempotencyRecordRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Dedups retried POSTs by Idempotency-Key. Recent keys are answered from a bounded, expiring map
+ * without touching the database; a key still running is never evicted from it.
+ *
+ * <p>{@link #execute} claims a key it has not seen by inserting it into the unique
+ * idempotency_key column before the action runs, so the claim holds across nodes and restarts.
+ * {@link #executeLocally}, for bids, claims it in the map only: the completed response is written
+ * to idempotency_record in batches by a background thread, and a filter of the keys written in the
+ * last retention-hours says which misses are worth looking up. A retried bid that lands on
+ * another node within flush-ms (or after a crash) runs again, and is turned away by the bid path
+ * because it no longer beats the current price.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService, ApplicationListener<ApplicationReadyEvent> {
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 200;
+    static final int LOAD_PAGE_SIZE = 5000;
+
+    final IdempotencyRecordRepository idempotencyRecordRepository;
+    final ObjectMapper objectMapper;
+    final MeterRegistry meterRegistry;
+
+    final Map<String, Entry> recent = new ConcurrentHashMap<>();
+    final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    final AtomicInteger size = new AtomicInteger();
+    // Completed responses waiting for the writer thread
+    final Queue<IdempotencyRecord> unwritten = new ConcurrentLinkedQueue<>();
+    final AtomicInteger unwrittenSize = new AtomicInteger();
+    ScheduledExecutorService writer;
+    volatile KeyFilter writtenKeys;
+    // Older generation, so a key stays in the filter for at least retention-hours
+    volatile KeyFilter previousWrittenKeys;
+    volatile long filterRotatedAt;
+    // Until the filter holds the keys already in the table every miss has to be looked up
+    volatile boolean filterLoaded;
+
+    @Value("${application.idempotency.max-entries:10000}")
+    int maxEntries;
+    @Value("${application.idempotency.ttl-ms:600000}")
+    long ttlMs;
+    @Value("${application.idempotency.retention-hours:24}")
+    long retentionHours;
+    @Value("${application.idempotency.flush-ms:200}")
+    long flushMs;
+    @Value("${application.idempotency.filter-bits:16777216}")
+    int filterBits;
+
+    @PostConstruct
+    public void start() {
+        writtenKeys = new KeyFilter(filterBits);
+        previousWrittenKeys = new KeyFilter(filterBits);
+        filterRotatedAt = System.currentTimeMillis();
+        meterRegistry.gauge("idempotency.unwritten", unwrittenSize);
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "idempotency-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::writePending, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Fills the filter with the keys still within retention, a page of (id, key) at a time
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        LocalDateTime since = LocalDateTime.now().minusHours(retentionHours);
+        long afterId = 0;
+        List<IdempotencyRecordRepository.KeyRow> page;
+        do {
+            page = idempotencyRecordRepository.findKeysCreatedSince(since, afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (IdempotencyRecordRepository.KeyRow row : page) {
+                writtenKeys.add(row.getIdempotencyKey());
+                afterId = row.getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        filterLoaded = true;
+    }
+
+    @PreDestroy
+    public void stop() {
+        writer.shutdownNow();
+        writePending();
+    }
+
+    @Override
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        return run(scope, key, request, action, true);
+    }
+
+    @Override
+    public ResponseEntity<?> executeLocally(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        return run(scope, key, request, action, false);
+    }
+
+    private ResponseEntity<?> run(String scope, String key, Object request, Supplier<ResponseEntity<?>> action,
+                                  boolean claimInDatabase) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key is too long");
+        }
+        String fullKey = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Entry mine = new Entry(fingerprint, System.currentTimeMillis());
+        Entry seen = claimInMemory(fullKey, mine);
+        if (seen != null) {
+            checkFingerprint(seen.fingerprint, fingerprint);
+            if (seen.response == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+            }
+            meterRegistry.counter("idempotency.replays", "source", "memory").increment();
+            return replay(seen.response);
+        }
+
+        IdempotencyRecord claim = null;
+        if (claimInDatabase) {
+            try {
+                claim = idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.builder()
+                        .idempotencyKey(fullKey)
+                        .requestFingerprint(fingerprint)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                ResponseEntity<?> replayed = replayFromDatabase(fullKey, fingerprint, mine);
+                if (replayed == null) {
+                    // Still running elsewhere (or rolled back just now); don't cache, the next retry looks again
+                    forget(fullKey, mine);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+                }
+                return replayed;
+            }
+        } else if (mightBeWritten(fullKey)) {
+            ResponseEntity<?> replayed = replayFromDatabase(fullKey, fingerprint, mine);
+            if (replayed != null) {
+                return replayed;
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Failed attempts are not remembered, the client is free to retry with the same key
+            forget(fullKey, mine);
+            if (claim != null) {
+                idempotencyRecordRepository.deleteByKey(fullKey);
+            }
+            throw e;
+        }
+        StoredResponse stored = new StoredResponse(response.getStatusCode().value(), toJson(response.getBody()));
+        mine.response = stored;
+        if (claim != null) {
+            claim.setStatus(stored.getStatus());
+            claim.setBody(stored.getBody());
+            idempotencyRecordRepository.save(claim);
+            return response;
+        }
+        unwritten.add(IdempotencyRecord.builder()
+                .idempotencyKey(fullKey)
+                .requestFingerprint(fingerprint)
+                .status(stored.getStatus())
+                .body(stored.getBody())
+                .createdAt(LocalDateTime.now())
+                .build());
+        unwrittenSize.incrementAndGet();
+        return response;
+    }
+
+    // One transaction per batch; on a conflict (the key was written by another node) row by row, skipping the duplicates
+    void writePending() {
+        List<IdempotencyRecord> batch = new ArrayList<>();
+        IdempotencyRecord record;
+        while ((record = unwritten.poll()) != null) {
+            unwrittenSize.decrementAndGet();
+            batch.add(record);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            try {
+                idempotencyRecordRepository.saveAll(batch);
+            } catch (DataIntegrityViolationException e) {
+                for (IdempotencyRecord single : batch) {
+                    single.setId(null);
+                    try {
+                        idempotencyRecordRepository.save(single);
+                    } catch (DataIntegrityViolationException duplicate) {
+                        log.debug("Idempotency key {} was already recorded", single.getIdempotencyKey());
+                    }
+                }
+            }
+        } catch (DataAccessException e) {
+            // Keep them for the next run; the map still answers these keys in the meantime
+            log.warn("Could not record {} idempotency keys, retrying: {}", batch.size(), e.getMessage());
+            for (IdempotencyRecord retry : batch) {
+                retry.setId(null);
+                unwritten.add(retry);
+                unwrittenSize.incrementAndGet();
+            }
+            return;
+        }
+        for (IdempotencyRecord written : batch) {
+            writtenKeys.add(written.getIdempotencyKey());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.idempotency.purge-ms:600000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        recent.forEach((key, entry) -> {
+            if (entry.response != null && entry.isExpired(now, ttlMs)) {
+                forget(key, entry);
+            }
+        });
+        if (now - filterRotatedAt >= TimeUnit.HOURS.toMillis(retentionHours)) {
+            previousWrittenKeys = writtenKeys;
+            writtenKeys = new KeyFilter(filterBits);
+            filterRotatedAt = now;
+        }
+        int removed = idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            log.debug("Purged {} idempotency records", removed);
+        }
+    }
+
+    // Returns the entry already holding the key, or null once ours has been put in
+    private Entry claimInMemory(String fullKey, Entry mine) {
+        while (true) {
+            Entry seen = recent.putIfAbsent(fullKey, mine);
+            if (seen == null) {
+                insertionOrder.add(fullKey);
+                if (size.incrementAndGet() > maxEntries) {
+                    evictOldest();
+                }
+                return null;
+            }
+            if (!seen.isExpired(System.currentTimeMillis(), ttlMs)) {
+                return seen;
+            }
+            forget(fullKey, seen);
+        }
+    }
+
+    private void evictOldest() {
+        // Keys still running go back to the end of the line: dropping one would let a retry run it a second time
+        for (int scanned = size.get(); scanned > 0 && size.get() > maxEntries; scanned--) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            Entry entry = recent.get(oldest);
+            if (entry != null && entry.response == null) {
+                insertionOrder.add(oldest);
+            } else if (entry != null && recent.remove(oldest, entry)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    private void forget(String fullKey, Entry entry) {
+        if (recent.remove(fullKey, entry)) {
+            size.decrementAndGet();
+            insertionOrder.remove(fullKey);
+        }
+    }
+
+    private boolean mightBeWritten(String fullKey) {
+        return !filterLoaded || writtenKeys.mightContain(fullKey) || previousWrittenKeys.mightContain(fullKey);
+    }
+
+    // The stored response for a key that has left the map, or null if the key was never recorded
+    private ResponseEntity<?> replayFromDatabase(String fullKey, String fingerprint, Entry mine) {
+        IdempotencyRecord existing = idempotencyRecordRepository.findByIdempotencyKey(fullKey).orElse(null);
+        if (existing == null || existing.getStatus() == null) {
+            return null;
+        }
+        checkFingerprint(existing.getRequestFingerprint(), fingerprint);
+        StoredResponse stored = new StoredResponse(existing.getStatus(), existing.getBody());
+        mine.response = stored;
+        meterRegistry.counter("idempotency.replays", "source", "db").increment();
+        return replay(stored);
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (expected != null && !expected.equals(actual)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request body");
+        }
+    }
+
+    private static ResponseEntity<?> replay(StoredResponse stored) {
+        return ResponseEntity.status(stored.getStatus())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.getBody());
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent response", e);
+        }
+    }
+
+    @lombok.Value
+    static class StoredResponse {
+        int status;
+        String body;
+    }
+
+    static final class Entry {
+        final String fingerprint;
+        final long createdAt;
+        volatile StoredResponse response;
+
+        Entry(String fingerprint, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired(long now, long ttlMs) {
+            return now - createdAt > ttlMs;
+        }
+    }
+
+    // Bloom filter over the recorded keys: no false negatives, and a false positive costs one lookup
+    static final class KeyFilter {
+        final AtomicLongArray words;
+        final int mask;
+
+        KeyFilter(int bits) {
+            int size = Integer.highestOneBit(Math.max(bits, 64));
+            words = new AtomicLongArray(size >>> 6);
+            mask = size - 1;
+        }
+
+        void add(String key) {
+            long hash = hash(key);
+            set((int) hash & mask);
+            set((int) (hash >>> 32) & mask);
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            return isSet((int) hash & mask) && isSet((int) (hash >>> 32) & mask);
+        }
+
+        private void set(int bit) {
+            long flag = 1L << bit;
+            long word;
+            do {
+                word = words.get(bit >>> 6);
+            } while ((word & flag) == 0 && !words.compareAndSet(bit >>> 6, word, word | flag));
+        }
+
+        private boolean isSet(int bit) {
+            return (words.get(bit >>> 6) & (1L << bit)) != 0;
+        }
+
+        // 64-bit FNV-1a, split into the two probe positions
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
@@ -7,5 +7,6 @@ public interface OrganizationService {
     Integer getOrganizationSize();
     Page<Organization> getOrganizations(Integer pageSize, Integer page);
     Organization getOrganization(Long id);
+    Long getOrganizationVersion(Long id);
     Organization save(Organization organization);
 }
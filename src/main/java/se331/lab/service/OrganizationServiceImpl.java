@@ -26,6 +26,11 @@ public class OrganizationServiceImpl implements OrganizationService{
         return organizationDao.getOrganization(id);
     }
 
+    @Override
+    public Long getOrganizationVersion(Long id) {
+        return organizationDao.getOrganizationVersion(id);
+    }
+
     @Override
     public Organization save(Organization organization) {
         return organizationDao.save(organization);
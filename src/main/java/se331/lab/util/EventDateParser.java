@@ -0,0 +1,153 @@
+package se331.lab.util;
+
+import lombok.Value;
+import se331.lab.entity.Event;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the free-form Event.date / Event.time strings ("3rd Sept", "January 28, 2022",
+ * "8.00am-4.00 pm.", "12:00") into a start and end. A date without a year is taken to be in
+ * {@code defaultYear}; a missing or unreadable time makes it an all-day event, and a time
+ * without an end makes startsAt and endsAt equal. Anything else unreadable gives null.
+ */
+public final class EventDateParser {
+    static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+    static final Pattern ISO_DATE = Pattern.compile("(\\d{4})-(\\d{1,2})-(\\d{1,2})");
+    static final Pattern DAY_MONTH = Pattern.compile("(\\d{1,2})(?:st|nd|rd|th)?\\s+([a-z]+)\\.?,?(?:\\s+(\\d{4}))?");
+    static final Pattern MONTH_DAY = Pattern.compile("([a-z]+)\\.?\\s+(\\d{1,2})(?:st|nd|rd|th)?,?(?:\\s+(\\d{4}))?");
+    static final Pattern CLOCK = Pattern.compile("(\\d{1,2})(?:[.:](\\d{2}))?\\s*([ap])?\\.?\\s*(?:m\\.?)?");
+
+    private EventDateParser() {
+    }
+
+    @Value
+    public static class Range {
+        LocalDateTime startsAt;
+        LocalDateTime endsAt;
+    }
+
+    // Fills startsAt/endsAt from the legacy strings unless they were given; false if they could not be read
+    public static boolean apply(Event event, int defaultYear) {
+        if (event.getStartsAt() != null) {
+            if (event.getEndsAt() == null) {
+                event.setEndsAt(event.getStartsAt());
+            }
+            return true;
+        }
+        Range range = parse(event.getDate(), event.getTime(), defaultYear);
+        if (range == null) {
+            return false;
+        }
+        event.setStartsAt(range.getStartsAt());
+        event.setEndsAt(range.getEndsAt());
+        return true;
+    }
+
+    public static Range parse(String date, String time, int defaultYear) {
+        LocalDate day = parseDate(date, defaultYear);
+        if (day == null) {
+            return null;
+        }
+        LocalTime[] times = parseTimes(time);
+        if (times == null) {
+            return new Range(day.atStartOfDay(), day.atTime(23, 59, 59));
+        }
+        LocalDateTime start = day.atTime(times[0]);
+        LocalDateTime end = times[1] == null ? start : day.atTime(times[1]);
+        // "10.00pm-1.00am" ends on the next day
+        return new Range(start, end.isBefore(start) ? end.plusDays(1) : end);
+    }
+
+    static LocalDate parseDate(String text, int defaultYear) {
+        if (text == null) {
+            return null;
+        }
+        String date = text.trim().toLowerCase(Locale.ROOT);
+        try {
+            Matcher matcher = ISO_DATE.matcher(date);
+            if (matcher.matches()) {
+                return LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+            }
+            matcher = DAY_MONTH.matcher(date);
+            if (matcher.matches()) {
+                return toDate(matcher.group(1), matcher.group(2), matcher.group(3), defaultYear);
+            }
+            matcher = MONTH_DAY.matcher(date);
+            if (matcher.matches()) {
+                return toDate(matcher.group(2), matcher.group(1), matcher.group(3), defaultYear);
+            }
+        } catch (DateTimeException e) {
+            // "31st Feb" and the like
+        }
+        return null;
+    }
+
+    private static LocalDate toDate(String day, String monthName, String year, int defaultYear) {
+        int month = monthOf(monthName);
+        if (month == 0) {
+            return null;
+        }
+        return LocalDate.of(year == null ? defaultYear : Integer.parseInt(year), month, Integer.parseInt(day));
+    }
+
+    private static int monthOf(String name) {
+        if (name.length() < 3) {
+            return 0;
+        }
+        String prefix = name.substring(0, 3);
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (MONTHS[i].equals(prefix)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // {start, end or null}; an unmarked start takes the end's am/pm unless that would put it after the end
+    static LocalTime[] parseTimes(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String[] parts = text.trim().toLowerCase(Locale.ROOT).split("\\s*(?:-|\\u2013|to)\\s*", 2);
+        Matcher start = CLOCK.matcher(parts[0].trim());
+        if (!start.matches()) {
+            return null;
+        }
+        if (parts.length == 1) {
+            LocalTime only = toTime(start, start.group(3));
+            return only == null ? null : new LocalTime[]{only, null};
+        }
+        Matcher end = CLOCK.matcher(parts[1].trim());
+        if (!end.matches()) {
+            return null;
+        }
+        LocalTime endTime = toTime(end, end.group(3));
+        if (endTime == null) {
+            return null;
+        }
+        LocalTime startTime = toTime(start, start.group(3) != null ? start.group(3) : end.group(3));
+        if (startTime != null && start.group(3) == null && end.group(3) != null && startTime.isAfter(endTime)) {
+            startTime = toTime(start, "a");
+        }
+        return startTime == null ? null : new LocalTime[]{startTime, endTime};
+    }
+
+    private static LocalTime toTime(Matcher matcher, String meridiem) {
+        int hour = Integer.parseInt(matcher.group(1));
+        int minute = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+        if (minute > 59 || hour > 23 || (meridiem != null && (hour < 1 || hour > 12))) {
+            return null;
+        }
+        if (meridiem != null) {
+            hour = hour % 12 + ("p".equals(meridiem) ? 12 : 0);
+        }
+        return LocalTime.of(hour, minute);
+    }
+}
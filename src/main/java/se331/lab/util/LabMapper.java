@@ -2,6 +2,10 @@ package se331.lab.util;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.factory.Mappers;
+import se331.lab.AuctionItem;
+import se331.lab.AuctionItemDTO;
+import se331.lab.Bid;
+import se331.lab.BidDTO;
 import se331.lab.EventDTO;
 import se331.lab.OrganizerDTO;
 import se331.lab.OrganizerAuthDTO;
@@ -12,7 +16,7 @@ import se331.lab.entity.Participant;
 
 import java.util.List;
 
-@Mapper
+@Mapper(imports = Money.class)
 public interface LabMapper {
     LabMapper INSTANCE = Mappers.getMapper(LabMapper.class);
     EventDTO getEventDto(Event event);
@@ -23,4 +27,11 @@ public interface LabMapper {
     OrganizerAuthDTO getOrganizerAuthDTO(Organizer organizer);
     ParticipantDTO getParticipantDTO(Participant participant);
     List<ParticipantDTO> getParticipantDTO(List<Participant> participants);
+    @org.mapstruct.Mapping(target = "startingPrice", expression = "java(Money.toMajor(item.getStartingPriceMinor()))")
+    @org.mapstruct.Mapping(target = "currentPrice", expression = "java(Money.toMajor(item.getCurrentPriceMinor()))")
+    AuctionItemDTO getAuctionItemDto(AuctionItem item);
+    List<AuctionItemDTO> getAuctionItemDto(List<AuctionItem> items);
+    @org.mapstruct.Mapping(target = "amount", expression = "java(Money.toMajor(bid.getAmountMinor()))")
+    BidDTO getBidDto(Bid bid);
+    List<BidDTO> getBidDto(List<Bid> bids);
 }
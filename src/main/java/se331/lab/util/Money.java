@@ -0,0 +1,37 @@
+package se331.lab.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are carried as long minor units (satang/cents, two decimal places) everywhere behind
+ * the API; these are the only conversions to and from the major-unit numbers in JSON.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static Long toMinor(Double major) {
+        if (major == null) {
+            return null;
+        }
+        // BigDecimal.valueOf goes through the shortest decimal string, so 0.29 becomes 29, not 28
+        return BigDecimal.valueOf(major).movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static Double toMajor(Long minor) {
+        return minor == null ? null : toMajor(minor.longValue());
+    }
+
+    public static double toMajor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE).doubleValue();
+    }
+
+    // Mean of count amounts summing to totalMinor, rounded to the minor unit
+    public static double averageToMajor(long totalMinor, long count) {
+        return BigDecimal.valueOf(totalMinor).divide(BigDecimal.valueOf(count), 0, RoundingMode.HALF_UP)
+                .movePointLeft(SCALE).doubleValue();
+    }
+}
@@ -0,0 +1,86 @@
+package se331.lab.auction;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuctionItemSearchIndexTest {
+    AuctionItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AuctionItemSearchIndex(null);
+        index.ready = true;
+    }
+
+    @Test
+    void findsSubstringsIgnoringCase() {
+        index.put(1L, "Vintage Camera", "Electronics");
+        index.put(2L, "Camping stove", "Outdoor");
+
+        assertArrayEquals(new long[]{1}, index.search("CAMERA", null));
+        assertArrayEquals(new long[]{2}, index.search(null, "door"));
+    }
+
+    @Test
+    void checksCandidatesAgainstTheText() {
+        // Has every trigram of "abcd" but not "abcd" itself
+        index.put(1L, "bcd abc", "");
+        index.put(2L, "xabcdx", "");
+
+        assertArrayEquals(new long[]{2}, index.search("abcd", null));
+    }
+
+    @Test
+    void ranksWholeFieldThenPrefixThenWordStartThenAnywhere() {
+        index.put(1L, "old lamp", "");
+        index.put(2L, "lampshade", "");
+        index.put(3L, "lamp", "");
+        index.put(4L, "clamps", "");
+
+        assertArrayEquals(new long[]{3, 2, 1, 4}, index.search("lamp", null));
+    }
+
+    @Test
+    void weighsDescriptionMatchesAboveTypeMatches() {
+        index.put(1L, "something", "guitar");
+        index.put(2L, "guitar", "something");
+
+        assertArrayEquals(new long[]{2, 1}, index.search("guitar", "guitar"));
+    }
+
+    @Test
+    void reindexingAnItemDropsItsOldText() {
+        index.put(1L, "wooden chair", "furniture");
+
+        index.put(1L, "metal table", "furniture");
+
+        assertArrayEquals(new long[0], index.search("chair", null));
+        assertArrayEquals(new long[]{1}, index.search("table", null));
+    }
+
+    @Test
+    void removedItemsAreNotFound() {
+        index.put(1L, "wooden chair", "furniture");
+        index.put(2L, "wooden desk", "furniture");
+
+        index.remove(1L);
+
+        assertArrayEquals(new long[]{2}, index.search("wooden", null));
+        assertTrue(index.postings.keySet().containsAll(AuctionItemSearchIndex.grams("desk")));
+        assertTrue(index.postings.keySet().stream().noneMatch(AuctionItemSearchIndex.grams("chair")::contains));
+    }
+
+    @Test
+    void leavesShortTermsAndAnUnbuiltIndexToTheDatabase() {
+        index.put(1L, "tv", "av");
+
+        assertNull(index.search("tv", null));
+        assertNull(index.search(null, null));
+        index.ready = false;
+        assertNull(index.search("television", null));
+    }
+}
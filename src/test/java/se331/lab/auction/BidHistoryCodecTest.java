@@ -0,0 +1,112 @@
+package se331.lab.auction;
+
+import org.junit.jupiter.api.Test;
+import se331.lab.Bid;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BidHistoryCodecTest {
+    static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000);
+
+    @Test
+    void roundTripsBidsInTheCurrentVersion() {
+        List<Bid> bids = List.of(
+                bid(10L, 100L, "alice", START),
+                bid(11L, 250L, null, START.plusSeconds(3)),
+                bid(15L, 251L, "bob", START.plusMinutes(5)),
+                bid(16L, 1_000_000_000_000L, "alice", START.plusDays(2)));
+
+        byte[] blob = BidHistoryCodec.encode(bids);
+
+        assertEquals(BidHistoryCodec.VERSION, blob[0]);
+        assertBids(bids, BidHistoryCodec.decode(blob));
+    }
+
+    @Test
+    void roundTripsAnEmptyHistory() {
+        assertEquals(List.of(), BidHistoryCodec.decode(BidHistoryCodec.encode(List.of())));
+    }
+
+    @Test
+    void readsVersionOneCentDeltas() {
+        List<Bid> bids = List.of(
+                bid(1L, 150L, "alice", START),
+                bid(2L, 99L, "bob", START.plusSeconds(1)));
+
+        assertBids(bids, BidHistoryCodec.decode(versionOne(bids, false)));
+    }
+
+    @Test
+    void readsVersionOneRawDoubles() {
+        List<Bid> bids = List.of(
+                bid(1L, 29L, "alice", START),
+                bid(7L, 12_345L, "alice", START.plusHours(1)));
+
+        assertBids(bids, BidHistoryCodec.decode(versionOne(bids, true)));
+    }
+
+    @Test
+    void rejectsAnUnknownVersion() {
+        assertThrows(IllegalArgumentException.class, () -> BidHistoryCodec.decode(new byte[]{9, 0, 0}));
+    }
+
+    // Written the way version 1 did: one shared mode byte, then cent deltas or raw major-unit doubles
+    static byte[] versionOne(List<Bid> bids, boolean raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BidHistoryCodec.VERSION_DOUBLE_AMOUNTS);
+        BidHistoryCodec.writeVarint(out, bids.size());
+        List<String> dictionary = new ArrayList<>();
+        for (Bid bid : bids) {
+            if (!dictionary.contains(bid.getBidder())) {
+                dictionary.add(bid.getBidder());
+            }
+        }
+        BidHistoryCodec.writeVarint(out, dictionary.size());
+        for (String bidder : dictionary) {
+            byte[] bytes = bidder.getBytes(StandardCharsets.UTF_8);
+            BidHistoryCodec.writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+        out.write(raw ? BidHistoryCodec.AMOUNT_RAW : BidHistoryCodec.AMOUNT_CENTS);
+        long previousId = 0;
+        long previousMinor = 0;
+        long previousMicros = 0;
+        for (Bid bid : bids) {
+            BidHistoryCodec.writeVarint(out, BidHistoryCodec.zigzag(bid.getId() - previousId));
+            previousId = bid.getId();
+            if (raw) {
+                out.writeBytes(ByteBuffer.allocate(8).putDouble(bid.getAmountMinor() / 100.0).array());
+            } else {
+                BidHistoryCodec.writeVarint(out, BidHistoryCodec.zigzag(bid.getAmountMinor() - previousMinor));
+                previousMinor = bid.getAmountMinor();
+            }
+            long micros = BidHistoryCodec.toMicros(bid.getDatetime());
+            BidHistoryCodec.writeVarint(out, BidHistoryCodec.zigzag(micros - previousMicros));
+            previousMicros = micros;
+            BidHistoryCodec.writeVarint(out, dictionary.indexOf(bid.getBidder()) + 1);
+        }
+        return out.toByteArray();
+    }
+
+    static void assertBids(List<Bid> expected, List<Bid> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getAmountMinor(), actual.get(i).getAmountMinor());
+            assertEquals(expected.get(i).getDatetime(), actual.get(i).getDatetime());
+            assertEquals(expected.get(i).getBidder(), actual.get(i).getBidder());
+        }
+    }
+
+    static Bid bid(Long id, Long amountMinor, String bidder, LocalDateTime at) {
+        return Bid.builder().id(id).amountMinor(amountMinor).bidder(bidder).datetime(at).build();
+    }
+}
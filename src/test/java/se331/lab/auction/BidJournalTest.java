@@ -0,0 +1,150 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se331.lab.Bid;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BidJournalTest {
+    static final LocalDateTime AT = LocalDateTime.of(2024, 5, 1, 9, 30, 15, 250_000_000);
+    // Header plus fixed payload plus the five bytes of "alice"
+    static final int RECORD_BYTES = BidJournal.HEADER_BYTES + BidJournal.FIXED_PAYLOAD_BYTES + 5;
+
+    @TempDir
+    Path dir;
+
+    BidWriteBehind bidWriteBehind;
+    BidBook bidBook;
+    JdbcTemplate jdbcTemplate;
+    List<BidJournal> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bidWriteBehind = mock(BidWriteBehind.class);
+        bidWriteBehind.batchSize = 2;
+        bidBook = mock(BidBook.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(BidJournal::stop);
+    }
+
+    @Test
+    void readsBackWhatWasAppended() throws IOException {
+        BidJournal journal = start();
+        PendingBid first = journal.append(1L, 100L, "alice", AT);
+        PendingBid second = journal.append(2L, 250L, "alice", AT.plusSeconds(1));
+
+        assertEquals(List.of(first, second), segment().readAll());
+        assertEquals(1L, first.getSequence());
+        assertEquals(2L, second.getSequence());
+    }
+
+    @Test
+    void doesNotJournalABidderTheBidTableCannotHold() throws IOException {
+        BidJournal journal = start();
+
+        PendingBid bid = journal.append(1L, 100L, "x".repeat(Bid.BIDDER_LENGTH + 1), AT);
+
+        assertNull(bid.getSequence());
+        assertEquals(List.of(), segment().readAll());
+    }
+
+    @Test
+    void stopsAtTheFirstRecordWithABadChecksum() throws IOException {
+        BidJournal journal = start();
+        PendingBid first = journal.append(1L, 100L, "alice", AT);
+        journal.append(1L, 200L, "alice", AT);
+        journal.append(1L, 300L, "alice", AT);
+
+        // One flipped bit in the amount of the second record
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile().toFile(), "rw")) {
+            long offset = RECORD_BYTES + BidJournal.HEADER_BYTES + 16;
+            file.seek(offset);
+            int b = file.read();
+            file.seek(offset);
+            file.write(b ^ 1);
+        }
+
+        assertEquals(List.of(first), segment().readAll());
+    }
+
+    @Test
+    void ignoresATornTail() throws IOException {
+        BidJournal journal = start();
+        PendingBid first = journal.append(1L, 100L, "alice", AT);
+        PendingBid second = journal.append(1L, 200L, "alice", AT);
+        journal.append(1L, 300L, "alice", AT);
+        journal.stop();
+        started.clear();
+
+        // The crash cut the third record in half
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile().toFile(), "rw")) {
+            file.setLength(2L * RECORD_BYTES + RECORD_BYTES / 2);
+        }
+
+        assertEquals(List.of(first, second), segment().readAll());
+    }
+
+    @Test
+    void replaysOnlyTheBidsMissingFromTheTableInWriteBehindBatches() throws IOException {
+        BidJournal journal = start();
+        List<PendingBid> bids = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            bids.add(journal.append((long) i, i * 100L, "alice", AT.plusSeconds(i)));
+        }
+        journal.stop();
+        started.clear();
+        when(jdbcTemplate.queryForObject("select max(sequence) from bid", Long.class)).thenReturn(2L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenReturn(List.of(2L));
+
+        BidJournal restarted = start();
+
+        verify(bidWriteBehind).flush(List.of(bids.get(0), bids.get(2)));
+        verify(bidWriteBehind).flush(List.of(bids.get(3), bids.get(4)));
+        verify(bidWriteBehind).flush(List.of(bids.get(5)));
+        verify(bidBook).evict(4L);
+        PendingBid next = restarted.append(7L, 700L, "alice", AT);
+        assertNotNull(next.getSequence());
+        assertEquals(7L, next.getSequence());
+    }
+
+    BidJournal start() throws IOException {
+        BidJournal journal = new BidJournal(bidWriteBehind, bidBook, jdbcTemplate, new SimpleMeterRegistry());
+        journal.directory = dir.toString();
+        journal.segmentSizeMb = 1;
+        journal.start();
+        started.add(journal);
+        return journal;
+    }
+
+    Path segmentFile() {
+        return dir.resolve(String.format("%s%020d%s", BidJournal.SEGMENT_PREFIX, 1, BidJournal.SEGMENT_SUFFIX));
+    }
+
+    BidJournal.Segment segment() throws IOException {
+        return BidJournal.Segment.open(1, segmentFile());
+    }
+}
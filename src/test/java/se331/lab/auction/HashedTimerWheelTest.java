@@ -0,0 +1,98 @@
+package se331.lab.auction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimerWheelTest {
+    static final long TICK_MILLIS = 10;
+    // Eight 10 ms buckets: anything more than 80 ms out goes round the wheel at least once
+    static final int WHEEL_SIZE = 8;
+
+    final List<Long> fired = new CopyOnWriteArrayList<>();
+    final Map<Long, Long> firedAt = new ConcurrentHashMap<>();
+    CountDownLatch expiries = new CountDownLatch(1);
+    HashedTimerWheel wheel = new HashedTimerWheel(TICK_MILLIS, WHEEL_SIZE, id -> {
+        fired.add(id);
+        firedAt.put(id, System.currentTimeMillis());
+        expiries.countDown();
+    }, Runnable::run);
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void firesNoEarlierThanTheDeadline() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 50;
+
+        wheel.schedule(1, deadline);
+
+        assertTrue(wheel.isScheduled(1));
+        assertTrue(expiries.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1L), fired);
+        assertTrue(firedAt.get(1L) >= deadline);
+        assertFalse(wheel.isScheduled(1));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesAPastDeadlineOnTheNextTick() throws InterruptedException {
+        wheel.schedule(1, System.currentTimeMillis() - 1000);
+
+        assertTrue(expiries.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1L), fired);
+    }
+
+    @Test
+    void waitsOutDeadlinesPastOneTurnOfTheWheel() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3 * TICK_MILLIS * WHEEL_SIZE;
+
+        wheel.schedule(1, deadline);
+
+        assertTrue(expiries.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAt.get(1L) >= deadline);
+    }
+
+    @Test
+    void doesNotFireACancelledId() throws InterruptedException {
+        wheel.schedule(1, System.currentTimeMillis() + 30);
+        wheel.schedule(2, System.currentTimeMillis() + 60);
+
+        wheel.cancel(1);
+
+        assertTrue(expiries.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(2L), fired);
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() throws InterruptedException {
+        expiries = new CountDownLatch(2);
+        wheel.schedule(1, System.currentTimeMillis() + 30);
+        long later = System.currentTimeMillis() + 150;
+
+        wheel.schedule(1, later);
+        wheel.schedule(2, later + 50);
+
+        assertTrue(expiries.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 2L), fired);
+        assertTrue(firedAt.get(1L) >= later);
+    }
+
+    @Test
+    void rejectsAWheelSizeThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimerWheel(TICK_MILLIS, 6, id -> { }, Runnable::run));
+    }
+}
@@ -0,0 +1,108 @@
+package se331.lab.auction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import se331.lab.AuctionItem;
+import se331.lab.Bid;
+import se331.lab.repository.AuctionItemRepository;
+import se331.lab.repository.BidRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SqlBidAcceptanceContentionTest {
+    static final int NODES = 3;
+    static final int THREADS = 12;
+    static final int BIDS_PER_THREAD = 40;
+
+    @Autowired
+    AuctionItemRepository auctionItemRepository;
+    @Autowired
+    BidRepository bidRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void everyAcceptedBidBeatsTheOneBeforeItAcrossNodes() throws Exception {
+        AuctionItem item = auctionItemRepository.save(AuctionItem.builder()
+                .description("Contended item")
+                .type("TEST")
+                .startingPriceMinor(1L)
+                .build());
+        Long itemId = item.getId();
+
+        // Each simulated node has its own bid book cache and talks to the shared database
+        List<SqlBidAcceptance> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            SqlBidAcceptance node = new SqlBidAcceptance(auctionItemRepository, bidRepository,
+                    new BidBook(auctionItemRepository, bidRepository), new TransactionTemplate(transactionManager),
+                    new SimpleMeterRegistry());
+            node.maxAttempts = 50;
+            node.registerMetrics();
+            nodes.add(node);
+        }
+
+        int total = THREADS * BIDS_PER_THREAD;
+        List<Integer> amounts = new ArrayList<>(IntStream.rangeClosed(1, total).boxed().toList());
+        Collections.shuffle(amounts);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            SqlBidAcceptance node = nodes.get(t % NODES);
+            List<Integer> mine = amounts.subList(t * BIDS_PER_THREAD, (t + 1) * BIDS_PER_THREAD);
+            String bidder = "bidder-" + t;
+            Callable<List<Long>> task = () -> {
+                List<Long> accepted = new ArrayList<>();
+                for (Integer amount : mine) {
+                    BidResult result = node.accept(itemId, amount.longValue(), bidder, LocalDateTime.now());
+                    if (result.isAccepted()) {
+                        accepted.add(amount.longValue());
+                    }
+                }
+                return accepted;
+            };
+            futures.add(pool.submit(task));
+        }
+        List<Long> accepted = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            accepted.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        AuctionItem after = auctionItemRepository.findById(itemId).orElseThrow();
+        List<Bid> rows = bidRepository.findByItem_Id(itemId, PageRequest.of(0, total, Sort.by("id"))).getContent();
+
+        // The highest amount can never be outbid, so it must have been accepted
+        assertEquals((long) total, after.getCurrentPriceMinor());
+        // No lost updates: the counter, the rows and the accept decisions all agree
+        assertEquals(accepted.size(), after.getBidCount().intValue());
+        assertEquals(accepted.size(), rows.size());
+        // No wrong accepts: in commit order every bid is strictly higher than the previous one
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i).getAmountMinor() > rows.get(i - 1).getAmountMinor(),
+                    "bid " + rows.get(i).getAmountMinor() + " accepted after " + rows.get(i - 1).getAmountMinor());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package se331.lab.auction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketsTest {
+    // Slow enough that nothing refills while a test runs
+    static final double TRICKLE = 0.001;
+
+    @Test
+    void startsFullAndRefusesPastTheBurst() {
+        TokenBuckets buckets = new TokenBuckets(1024, TRICKLE, 3);
+
+        assertEquals(0, buckets.tryTake(42));
+        assertEquals(0, buckets.tryTake(42));
+        assertEquals(0, buckets.tryTake(42));
+        assertTrue(buckets.tryTake(42) > 0);
+    }
+
+    @Test
+    void saysHowLongUntilTheNextToken() {
+        TokenBuckets buckets = new TokenBuckets(1024, 1, 1);
+        buckets.tryTake(7);
+
+        long wait = buckets.tryTake(7);
+
+        assertTrue(wait > 0 && wait <= 1000, "waited " + wait);
+        assertTrue(buckets.waitMillis(7) > 0);
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBuckets buckets = new TokenBuckets(1024, 1000, 1);
+        assertEquals(0, buckets.tryTake(7));
+
+        Thread.sleep(20);
+
+        assertEquals(0, buckets.tryTake(7));
+    }
+
+    @Test
+    void waitMillisDoesNotTakeAToken() {
+        TokenBuckets buckets = new TokenBuckets(1024, TRICKLE, 1);
+
+        assertEquals(0, buckets.waitMillis(7));
+        assertEquals(0, buckets.waitMillis(7));
+        assertEquals(0, buckets.tryTake(7));
+        assertTrue(buckets.waitMillis(7) > 0);
+    }
+
+    @Test
+    void givesBackATokenWithoutOverfilling() {
+        TokenBuckets buckets = new TokenBuckets(1024, TRICKLE, 1);
+        buckets.tryTake(7);
+
+        buckets.giveBack(7);
+        buckets.giveBack(7);
+
+        assertEquals(0, buckets.tryTake(7));
+        assertTrue(buckets.tryTake(7) > 0);
+    }
+
+    @Test
+    void keepsKeysInDifferentBucketsApart() {
+        TokenBuckets buckets = new TokenBuckets(1024, TRICKLE, 1);
+        assertNotEquals(TokenBuckets.spread(1) & buckets.mask, TokenBuckets.spread(2) & buckets.mask);
+
+        assertEquals(0, buckets.tryTake(1));
+
+        assertEquals(0, buckets.tryTake(2));
+    }
+
+    @Test
+    void roundsStripesUpToAPowerOfTwo() {
+        assertEquals(1024, new TokenBuckets(1000, 1, 1).slots.length());
+        assertEquals(1024, new TokenBuckets(1024, 1, 1).slots.length());
+    }
+
+    @Test
+    void rejectsABurstItCannotCount() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBuckets(16, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBuckets(16, 1, (int) (TokenBuckets.TOKEN_MASK / TokenBuckets.ONE) + 1));
+    }
+}
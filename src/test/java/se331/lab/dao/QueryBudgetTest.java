@@ -0,0 +1,132 @@
+package se331.lab.dao;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import se331.lab.EventDTO;
+import se331.lab.ParticipantDTO;
+import se331.lab.entity.Event;
+import se331.lab.entity.Organizer;
+import se331.lab.entity.Participant;
+import se331.lab.security.user.Role;
+import se331.lab.security.user.User;
+import se331.lab.util.LabMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query budgets for the event and participant responses: each case loads through the DAO and
+ * maps to DTOs the way the controllers do, and fails if that takes more statements than the
+ * budget. The transaction stands in for open-in-view, so lazy loads during mapping are counted.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=se331.lab.dao.QueryCounter"})
+@Import({EventDaoDbImpl.class, EventSearchIndex.class, EventCalendar.class, EventFacets.class, ParticipantDaoDbImpl.class})
+class QueryBudgetTest {
+    static final int PAGE_SIZE = 10;
+
+    @Autowired
+    EventDaoDbImpl eventDao;
+    @Autowired
+    ParticipantDaoDbImpl participantDao;
+    @Autowired
+    EntityManager entityManager;
+
+    Long eventId;
+    Long participantId;
+
+    @BeforeEach
+    void seed() {
+        List<Organizer> organizers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Organizer organizer = Organizer.builder().name("Organizer " + i).build();
+            entityManager.persist(organizer);
+            organizers.add(organizer);
+        }
+        // Organizers with a login, so the eagerly loaded Organizer.user side is not always empty
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(User.builder()
+                    .username("organizer" + i)
+                    .roles(new ArrayList<>(List.of(Role.ROLE_USER)))
+                    .organizer(organizers.get(i))
+                    .build());
+        }
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Event event = Event.builder()
+                    .title("Event " + i)
+                    .category("Category " + i % 3)
+                    .organizer(organizers.get(i % organizers.size()))
+                    .images(new ArrayList<>(List.of("image-" + i + "-a", "image-" + i + "-b")))
+                    .build();
+            entityManager.persist(event);
+            events.add(event);
+        }
+        for (int i = 0; i < 12; i++) {
+            Participant participant = Participant.builder()
+                    .name("Participant " + i)
+                    .eventHistory(new ArrayList<>(List.of(events.get(i), events.get(i + 3), events.get(i + 7))))
+                    .build();
+            entityManager.persist(participant);
+            participantId = participant.getId();
+        }
+        eventId = events.get(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void eventPage() {
+        // page + count + images
+        List<EventDTO> events = withinBudget(3, () -> LabMapper.INSTANCE.getEventDto(eventDao.getEvents(PAGE_SIZE, 1).getContent()));
+        assertEquals(PAGE_SIZE, events.size());
+        assertTrue(events.stream().allMatch(event -> event.getOrganizer().getName() != null && event.getImages().size() == 2));
+    }
+
+    @Test
+    void eventDetail() {
+        EventDTO event = withinBudget(1, () -> LabMapper.INSTANCE.getEventDto(eventDao.getEvent(eventId)));
+        assertEquals("Organizer 0", event.getOrganizer().getName());
+    }
+
+    @Test
+    void participantPage() {
+        // page + count + event histories + organizers with their users + user roles + images
+        List<ParticipantDTO> participants = withinBudget(6,
+                () -> LabMapper.INSTANCE.getParticipantDTO(participantDao.getParticipants(PAGE_SIZE, 1).getContent()));
+        assertEquals(PAGE_SIZE, participants.size());
+        assertTrue(participants.stream().allMatch(participant -> participant.getEventHistory().size() == 3));
+    }
+
+    @Test
+    void participantSearch() {
+        List<ParticipantDTO> participants = withinBudget(6,
+                () -> LabMapper.INSTANCE.getParticipantDTO(participantDao.getParticipants("participant", PageRequest.of(0, PAGE_SIZE)).getContent()));
+        assertEquals(PAGE_SIZE, participants.size());
+    }
+
+    @Test
+    void participantDetail() {
+        // participant with events and organizers + images
+        ParticipantDTO participant = withinBudget(2, () -> LabMapper.INSTANCE.getParticipantDTO(participantDao.getParticipant(participantId)));
+        assertTrue(participant.getEventHistory().stream().allMatch(event -> event.getOrganizer() != null && event.getImages().size() == 2));
+    }
+
+    private <T> T withinBudget(int budget, Supplier<T> response) {
+        QueryCounter.reset();
+        T result = response.get();
+        int queries = QueryCounter.count();
+        assertTrue(queries <= budget, "expected at most " + budget + " queries, ran " + queries);
+        return result;
+    }
+}
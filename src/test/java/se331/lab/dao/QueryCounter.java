@@ -0,0 +1,27 @@
+package se331.lab.dao;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares. Registered by class name through
+ * hibernate.session_factory.statement_inspector in the tests that set a query budget.
+ */
+public class QueryCounter implements StatementInspector {
+    static final AtomicInteger COUNT = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.incrementAndGet();
+        return sql;
+    }
+
+    static void reset() {
+        COUNT.set(0);
+    }
+
+    static int count() {
+        return COUNT.get();
+    }
+}
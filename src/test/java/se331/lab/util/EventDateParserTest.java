@@ -0,0 +1,89 @@
+package se331.lab.util;
+
+import org.junit.jupiter.api.Test;
+import se331.lab.entity.Event;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventDateParserTest {
+    static final int YEAR = 2023;
+
+    @Test
+    void readsTheDateFormatsInTheData() {
+        assertEquals(LocalDate.of(YEAR, 9, 3), EventDateParser.parseDate("3rd Sept", YEAR));
+        assertEquals(LocalDate.of(2022, 1, 28), EventDateParser.parseDate("January 28, 2022", YEAR));
+        assertEquals(LocalDate.of(YEAR, 2, 1), EventDateParser.parseDate(" Feb. 1st ", YEAR));
+        assertEquals(LocalDate.of(2024, 2, 29), EventDateParser.parseDate("2024-02-29", YEAR));
+    }
+
+    @Test
+    void rejectsDatesItCannotRead() {
+        assertNull(EventDateParser.parseDate("31st Feb", YEAR));
+        assertNull(EventDateParser.parseDate("someday", YEAR));
+        assertNull(EventDateParser.parseDate("3rd Xy", YEAR));
+        assertNull(EventDateParser.parseDate(null, YEAR));
+    }
+
+    @Test
+    void readsTimeRangesWithMixedSeparators() {
+        assertEquals(new EventDateParser.Range(at(9, 3, 8, 0), at(9, 3, 16, 0)),
+                EventDateParser.parse("3rd Sept", "8.00am-4.00 pm.", YEAR));
+        assertEquals(new EventDateParser.Range(at(9, 3, 13, 30), at(9, 3, 15, 0)),
+                EventDateParser.parse("3rd Sept", "1:30 to 3pm", YEAR));
+    }
+
+    @Test
+    void takesTheStartsMeridiemFromTheEndUnlessThatPutsItAfterTheEnd() {
+        assertEquals(new EventDateParser.Range(at(9, 3, 14, 0), at(9, 3, 16, 0)),
+                EventDateParser.parse("3rd Sept", "2-4pm", YEAR));
+        assertEquals(new EventDateParser.Range(at(9, 3, 11, 0), at(9, 3, 13, 0)),
+                EventDateParser.parse("3rd Sept", "11-1pm", YEAR));
+    }
+
+    @Test
+    void endsOnTheNextDayWhenTheEndIsBeforeTheStart() {
+        assertEquals(new EventDateParser.Range(at(9, 3, 22, 0), at(9, 4, 1, 0)),
+                EventDateParser.parse("3rd Sept", "10.00pm-1.00am", YEAR));
+    }
+
+    @Test
+    void aSingleTimeStartsAndEndsTheEvent() {
+        assertEquals(new EventDateParser.Range(at(9, 3, 12, 0), at(9, 3, 12, 0)),
+                EventDateParser.parse("3rd Sept", "12:00", YEAR));
+    }
+
+    @Test
+    void aMissingOrUnreadableTimeMakesAnAllDayEvent() {
+        EventDateParser.Range allDay = new EventDateParser.Range(at(9, 3, 0, 0), LocalDate.of(YEAR, 9, 3).atTime(23, 59, 59));
+
+        assertEquals(allDay, EventDateParser.parse("3rd Sept", null, YEAR));
+        assertEquals(allDay, EventDateParser.parse("3rd Sept", "all day", YEAR));
+        assertEquals(allDay, EventDateParser.parse("3rd Sept", "13pm", YEAR));
+    }
+
+    @Test
+    void applyKeepsGivenTimesAndFillsMissingOnes() {
+        Event given = Event.builder().startsAt(at(5, 1, 9, 0)).build();
+        assertTrue(EventDateParser.apply(given, YEAR));
+        assertEquals(at(5, 1, 9, 0), given.getEndsAt());
+
+        Event legacy = Event.builder().date("3rd Sept").time("2-4pm").build();
+        assertTrue(EventDateParser.apply(legacy, YEAR));
+        assertEquals(at(9, 3, 14, 0), legacy.getStartsAt());
+        assertEquals(at(9, 3, 16, 0), legacy.getEndsAt());
+
+        Event unreadable = Event.builder().date("soon").build();
+        assertFalse(EventDateParser.apply(unreadable, YEAR));
+        assertNull(unreadable.getStartsAt());
+    }
+
+    static LocalDateTime at(int month, int day, int hour, int minute) {
+        return LocalDateTime.of(YEAR, month, day, hour, minute);
+    }
+}